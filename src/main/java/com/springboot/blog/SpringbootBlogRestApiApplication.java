@@ -1,24 +1,31 @@
 package com.springboot.blog;
 
 import org.springframework.boot.SpringApplication;
-import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigurationExcludeFilter;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// Same as @SpringBootApplication, except that the reactive read API (com.springboot.blog.reactive) is an application
+// of its own: it is left out of the component scan, and no R2DBC ConnectionFactory is set up next to the DataSource
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = R2dbcAutoConfiguration.class)
+@ComponentScan(excludeFilters = {
+		@ComponentScan.Filter(type = FilterType.CUSTOM, classes = TypeExcludeFilter.class),
+		@ComponentScan.Filter(type = FilterType.CUSTOM, classes = AutoConfigurationExcludeFilter.class),
+		@ComponentScan.Filter(type = FilterType.REGEX, pattern = "com\\.springboot\\.blog\\.reactive\\..*")
+})
+@EnableScheduling
+@EnableCaching
 public class SpringbootBlogRestApiApplication {
 
-<<<<<<< Updated upstream
-	@Bean
-	public ModelMapper modelMapper(){
-		return new ModelMapper();
-	}
-
 	public static void main(String[] args) {
 		SpringApplication.run(SpringbootBlogRestApiApplication.class, args);
 	}
-=======
-    public static void main(String[] args) {
-        SpringApplication.run(SpringbootBlogRestApiApplication.class, args);
-    }
->>>>>>> Stashed changes
 
 }
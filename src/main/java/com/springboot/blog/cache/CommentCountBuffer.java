@@ -0,0 +1,145 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Collects the changes to posts.comment_count in memory and writes them on a fixed delay.
+// A popular post gets many comments per second, updating its row for every one of them would make all those
+// transactions queue on the same row lock. A LongAdder per post spreads concurrent increments over several cells,
+// and flush() turns everything collected since the last run into a few set-based UPDATEs (one per distinct delta).
+// The count shown on a post can therefore lag behind by up to app.comments.count-flush-ms.
+// An adder that stayed at zero for a whole flush interval is dropped, so the map only holds recently commented posts.
+@Component
+public class CommentCountBuffer {
+
+    private final PostRepository postRepository;
+    private final Cache postCache;
+    private final PostPageCache postPageCache;
+    private final boolean reconcileOnStartup;
+
+    // postId -> comments added (or removed, when negative) since the last flush
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+
+    public CommentCountBuffer(PostRepository postRepository, CacheManager cacheManager, PostPageCache postPageCache,
+                              @Value("${app.comments.count-reconcile-on-startup:false}") boolean reconcileOnStartup) {
+        this.postRepository = postRepository;
+        this.postCache = cacheManager.getCache(AppConstants.POST_CACHE);
+        this.postPageCache = postPageCache;
+        this.reconcileOnStartup = reconcileOnStartup;
+    }
+
+    // Inside a transaction the change is only counted once it commits, a rolled back insert adds nothing
+    public void add(long postId, long delta) {
+        TransactionUtils.afterCommit(() -> addPending(postId, delta));
+    }
+
+    public void increment(long postId) {
+        add(postId, 1);
+    }
+
+    public void decrement(long postId) {
+        add(postId, -1);
+    }
+
+    // The post is gone, whatever is still pending for it has nowhere to go
+    public void forget(long postId) {
+        pending.remove(postId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.comments.count-flush-ms:1000}")
+    public void flush() {
+        //1. Take the pending deltas. The adders stay in the map, so a concurrent add() is either part of this
+        // sum or is left in the adder for the next flush, it is never lost
+        Map<Long, List<Long>> postIdsByDelta = new HashMap<>();
+        pending.forEach((postId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                postIdsByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(postId);
+            } else if (pending.remove(postId, adder)) {
+                // Nothing since the last flush. An add() racing with the removal is moved to a new adder
+                drainRemoved(postId, adder);
+            }
+        });
+
+        //2. One UPDATE ... WHERE id IN (...) per distinct delta, most posts only got +1 or +2
+        RuntimeException failure = null;
+        boolean updated = false;
+        for (Map.Entry<Long, List<Long>> entry : postIdsByDelta.entrySet()) {
+            try {
+                postRepository.addToCommentCount(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                // Put the deltas back so the next flush retries them
+                entry.getValue().forEach(postId -> addPending(postId, entry.getKey()));
+                failure = e;
+                continue;
+            }
+            //3. The cached PostDto and listing pages still carry the old count
+            if (postCache != null) {
+                entry.getValue().forEach(postCache::evict);
+            }
+            updated = true;
+        }
+        if (updated) {
+            postPageCache.invalidate();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void addPending(long postId, long delta) {
+        LongAdder adder = pending.computeIfAbsent(postId, id -> new LongAdder());
+        adder.add(delta);
+        // flush() may have dropped this adder in the meantime, the delta then goes to the one now in the map
+        if (pending.get(postId) != adder) {
+            drainRemoved(postId, adder);
+        }
+    }
+
+    // Whoever drains a dropped adder (flush() right after dropping it, or an add() that landed in it) moves what it
+    // holds, getAndSet per cell makes sure every delta is moved exactly once
+    private void drainRemoved(long postId, LongAdder removed) {
+        long late = removed.sumThenReset();
+        if (late != 0) {
+            addPending(postId, late);
+        }
+    }
+
+    // Recomputes every counter from the comments table (CommentCountEndpoint). Needed once for the rows that existed
+    // before the comment_count column was added, and corrects what was lost when an instance died with pending deltas.
+    // The recount already includes the comments other instances still hold as pending deltas, their next flush adds
+    // them a second time: run it while no other instance takes comment writes. It also locks every posts row
+    public int recount() {
+        flush();
+        return postRepository.recountComments();
+    }
+
+    // Off by default, for a single instance starting on a database that was just migrated
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        if (reconcileOnStartup) {
+            recount();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,25 @@
+package com.springboot.blog.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// POST /actuator/commentcounts recomputes every posts.comment_count (see CommentCountBuffer.recount).
+// Not exposed over HTTP unless commentcounts is added to management.endpoints.web.exposure.include
+@Component
+@Endpoint(id = "commentcounts")
+public class CommentCountEndpoint {
+
+    private final CommentCountBuffer commentCountBuffer;
+
+    public CommentCountEndpoint(CommentCountBuffer commentCountBuffer) {
+        this.commentCountBuffer = commentCountBuffer;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> recount() {
+        return Map.of("posts", commentCountBuffer.recount());
+    }
+}
@@ -0,0 +1,52 @@
+package com.springboot.blog.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.springboot.blog.utils.AppConstants;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+// Spring Boot already publishes cache.gets / cache.puts / cache.evictions / cache.size for the "posts" cache,
+// but Micrometer only adds the load counters for a Caffeine LoadingCache. @Cacheable(sync = true) loads through
+// Cache.get(key, loader) instead, so we read the load statistics from Caffeine ourselves.
+@Component
+public class PostCacheMetrics implements MeterBinder {
+
+    // A failed load is also counted when the post does not exist, since the loader throws ResourceNotFoundException
+    private static final String LOAD_DESCRIPTION = "The number of times the cache successfully loaded a new value or failed to load one";
+
+    private final CacheManager cacheManager;
+
+    public PostCacheMetrics(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(cacheManager.getCache(AppConstants.POST_CACHE) instanceof CaffeineCache caffeineCache)) {
+            return;
+        }
+        Cache<Object, Object> cache = caffeineCache.getNativeCache();
+        Tags tags = Tags.of("cache", AppConstants.POST_CACHE);
+
+        TimeGauge.builder("cache.load.duration", cache, TimeUnit.NANOSECONDS, c -> c.stats().totalLoadTime())
+                .tags(tags)
+                .description("The time the cache has spent loading new values")
+                .register(registry);
+        FunctionCounter.builder("cache.load", cache, c -> c.stats().loadSuccessCount())
+                .tags(tags).tag("result", "success")
+                .description(LOAD_DESCRIPTION)
+                .register(registry);
+        FunctionCounter.builder("cache.load", cache, c -> c.stats().loadFailureCount())
+                .tags(tags).tag("result", "failure")
+                .description(LOAD_DESCRIPTION)
+                .register(registry);
+    }
+}
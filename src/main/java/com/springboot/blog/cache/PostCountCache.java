@@ -0,0 +1,47 @@
+package com.springboot.blog.cache;
+
+import com.springboot.blog.repository.PostRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps the total number of posts in memory so listing pages don't have to run SELECT COUNT(*) every time.
+// createPost/deletePostById adjust it once they commit and it is re-read from the database on a fixed delay,
+// which corrects any drift (other instances writing, deletes racing with the reload, ...).
+@Component
+public class PostCountCache {
+
+    // -1 means we have not loaded the count yet
+    private static final long NOT_LOADED = -1;
+
+    private final PostRepository postRepository;
+    private final AtomicLong count = new AtomicLong(NOT_LOADED);
+
+    public PostCountCache(PostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    public long get() {
+        long current = count.get();
+        if (current == NOT_LOADED) {
+            reconcile();
+            current = count.get();
+        }
+        return current;
+    }
+
+    public void increment() {
+        // Nothing to adjust before the first load, the load itself will see the new row
+        count.updateAndGet(current -> current == NOT_LOADED ? NOT_LOADED : current + 1);
+    }
+
+    public void decrement() {
+        count.updateAndGet(current -> current == NOT_LOADED ? NOT_LOADED : Math.max(0, current - 1));
+    }
+
+    @Scheduled(fixedDelayString = "${app.posts.count-reconcile-ms:60000}")
+    public void reconcile() {
+        count.set(postRepository.count());
+    }
+}
@@ -0,0 +1,88 @@
+package com.springboot.blog.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springboot.blog.config.ReadWriteRoutingDataSource;
+import com.springboot.blog.payload.PostResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// The first pages of GET /api/posts (default view, exact count) kept as the JSON bytes we send back.
+// Almost every visitor asks for the same few pages, a hit skips both the SQL and the Jackson serialization.
+// Every post write bumps a write version, which is part of the key: the pages rendered before the write
+// can never be served again and are dropped right away. That version only lives in this JVM, a write handled by
+// another instance is not seen here, so entries also expire after app.posts.page-cache.ttl (the staleness bound
+// with several instances). The cache is bounded by the size of the JSON it holds, not by the number of pages,
+// and only pages up to max-page-size posts are cached. Pages are rendered with the ObjectMapper used for
+// every other response, so a cached page is byte for byte what the uncached path would have sent.
+// Hit/miss/eviction counters are published as the cache.* metrics tagged cache=postPages.
+@Component
+public class PostPageCache {
+
+    private record PageKey(long writeVersion, int pageNo, int pageSize, String sortBy, Sort.Direction sortDir) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int maxPages;
+    private final int maxPageSize;
+    private final AtomicLong writeVersion = new AtomicLong();
+    private final Cache<PageKey, byte[]> pages;
+
+    public PostPageCache(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${app.posts.page-cache.max-pages:5}") int maxPages,
+                         @Value("${app.posts.page-cache.max-page-size:50}") int maxPageSize,
+                         @Value("${app.posts.page-cache.max-size:16MB}") DataSize maxSize,
+                         @Value("${app.posts.page-cache.ttl:5s}") Duration ttl) {
+        this.objectMapper = objectMapper;
+        this.maxPages = maxPages;
+        this.maxPageSize = maxPageSize;
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<PageKey, byte[]>weigher((key, json) -> json.length)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "postPages");
+    }
+
+    // Deep pages are rarely read twice, they are not worth the memory. Nor is a page of thousands of posts
+    public boolean isCacheable(int pageNo, int pageSize) {
+        return pageNo >= 0 && pageNo < maxPages && pageSize >= 1 && pageSize <= maxPageSize;
+    }
+
+    // Concurrent misses on the same page wait for a single render. A failing render (bad sortBy, ...) caches nothing
+    public byte[] get(int pageNo, int pageSize, String sortBy, String sortDir, Supplier<PostResponse> loader) {
+        // Same rule as PostServiceImpl.getAllPosts: anything but asc sorts descending
+        Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC : Sort.Direction.DESC;
+        // The version is read before the query runs, a write committing meanwhile only makes this entry unreachable
+        PageKey key = new PageKey(writeVersion.get(), pageNo, pageSize, sortBy, direction);
+        // Loaded from the primary, a lagging replica would store an old page under the new version
+        return pages.get(key, k -> render(ReadWriteRoutingDataSource.onPrimary(loader)));
+    }
+
+    // Called once a post write is committed (create, update, delete, comment count flush)
+    public void invalidate() {
+        writeVersion.incrementAndGet();
+        pages.invalidateAll();
+    }
+
+    private byte[] render(PostResponse postResponse) {
+        try {
+            return objectMapper.writeValueAsBytes(postResponse);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
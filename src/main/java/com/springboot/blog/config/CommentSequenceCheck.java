@@ -0,0 +1,73 @@
+package com.springboot.blog.config;
+
+import com.springboot.blog.entity.Comment;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// comments_seq hands out comment ids in blocks of Comment.ID_ALLOCATION_SIZE. On a database whose comments table
+// already had rows before the sequence existed (ids from the old IDENTITY column, the sequence then created by
+// ddl-auto=update or the V2 migration) it starts at 1, and the first inserts would fail on the primary key.
+// Once at startup, before the comment writer and the web server, this takes one value from the sequence and restarts
+// it past the highest comment id if the block of that value could overlap existing ids. A sequence that is already
+// ahead is left alone, so the blocks other instances are still using stay valid.
+@Component
+public class CommentSequenceCheck implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentSequenceCheck.class);
+
+    private static final String SEQUENCE = "comments_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final String nextValueSql;
+    private volatile boolean running;
+
+    public CommentSequenceCheck(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // "select nextval('comments_seq')" on PostgreSQL, the H2 equivalent in tests
+        this.nextValueSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect()
+                .getSequenceSupport().getSequenceNextValString(SEQUENCE);
+    }
+
+    @Override
+    public void start() {
+        transactionTemplate.executeWithoutResult(status -> reseedIfBehind());
+        running = true;
+    }
+
+    private void reseedIfBehind() {
+        long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from comments", Long.class);
+        long next = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+        // Hibernate's pooled optimizer uses the ids from next - allocationSize + 1 up to next, nothing to overlap while empty
+        if (maxId > 0 && next - Comment.ID_ALLOCATION_SIZE < maxId) {
+            long restartWith = maxId + Comment.ID_ALLOCATION_SIZE;
+            jdbcTemplate.execute("alter sequence " + SEQUENCE + " restart with " + restartWith);
+            logger.warn("{} was at {} while comment ids go up to {}, restarted it with {}", SEQUENCE, next, maxId, restartWith);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Before CommentWriteQueue and the web server, nothing inserts comments yet
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 8192;
+    }
+}
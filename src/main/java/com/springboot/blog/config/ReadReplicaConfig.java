@@ -0,0 +1,52 @@
+package com.springboot.blog.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Only active when app.datasource.replica-urls is set.
+// Replaces the auto-configured connection pool with a ReadWriteRoutingDataSource: one Hikari pool for the primary
+// (spring.datasource.*) and one per replica, configured like the primary apart from the URL. Every pool publishes
+// the usual hikaricp.* metrics, tagged pool=primary, pool=replica-1, ...
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("app.datasource.replica-urls")
+public class ReadReplicaConfig {
+
+    // The pools are not beans of their own, so the DataSource post processors (SqlStatsConfig, VirtualThreadConfig)
+    // wrap the routing DataSource once instead of every pool behind it
+    @Bean
+    public ReadWriteRoutingDataSource dataSource(DataSourceProperties properties, Environment environment,
+                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+        meterRegistry.ifAvailable(primary::setMetricRegistry);
+
+        String[] replicaUrls = environment.getRequiredProperty("app.datasource.replica-urls", String[].class);
+        List<HikariDataSource> replicas = new ArrayList<>(replicaUrls.length);
+        for (int i = 0; i < replicaUrls.length; i++) {
+            HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setJdbcUrl(replicaUrls[i].trim());
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(Environment environment) {
+        return new ReadYourWritesFilter(environment.getProperty("app.datasource.read-your-writes-ms", Long.class, 5000L));
+    }
+}
@@ -0,0 +1,95 @@
+package com.springboot.blog.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Sends read-only transactions to the replicas (round-robin) and everything else to the primary.
+// The transaction manager opens the JDBC transaction before it marks the transaction read-only, so the choice can't
+// be made when the connection is requested. LazyConnectionDataSourceProxy hands out a placeholder and only takes a
+// real connection from the Router at the first statement, when TransactionSynchronizationManager knows.
+// A thread can be kept on the primary for a while with onPrimary(), see ReadYourWritesFilter.
+// So @Transactional(readOnly = true) on a service method is what sends its queries to a replica. It pays off without
+// replicas too: Hibernate neither snapshots nor dirty-checks what a read-only transaction loads, and never flushes.
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    // Set while the current thread must not read from a replica
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final HikariDataSource primary;
+    private final List<HikariDataSource> replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        setTargetDataSource(new Router());
+        afterPropertiesSet();
+    }
+
+    // Runs the action with every read-only transaction going to the primary as well
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = setPrimaryOnly(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            setPrimaryOnly(previous);
+        }
+    }
+
+    // Returns the previous value so callers can restore it, null clears it
+    static Boolean setPrimaryOnly(Boolean primaryOnly) {
+        Boolean previous = PRIMARY_ONLY.get();
+        if (primaryOnly == null) {
+            PRIMARY_ONLY.remove();
+        } else {
+            PRIMARY_ONLY.set(primaryOnly);
+        }
+        return previous;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        primary.close();
+    }
+
+    private class Router extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || Boolean.TRUE.equals(PRIMARY_ONLY.get())) {
+                return primary.getConnection();
+            }
+            // Round-robin, a replica that can't hand out a connection is skipped and the primary is the last resort
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                HikariDataSource replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                try {
+                    return replica.getConnection();
+                } catch (SQLException e) {
+                    ReadWriteRoutingDataSource.logger.warn("Replica {} is not available, trying the next one", replica.getPoolName(), e);
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new UnsupportedOperationException("Pooled connections always use the configured credentials");
+        }
+    }
+}
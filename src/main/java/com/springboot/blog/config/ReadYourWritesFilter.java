@@ -0,0 +1,78 @@
+package com.springboot.blog.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+// Replicas lag a little behind the primary. A client that just wrote something would not find it when the next
+// request reads from a replica, so every write request hands out a cookie and for window-ms after it the same
+// client reads from the primary as well. The write request itself never reads from a replica.
+public class ReadYourWritesFilter extends OncePerRequestFilter implements Ordered {
+
+    public static final String COOKIE = "primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+
+    private final long windowMs;
+
+    public ReadYourWritesFilter(long windowMs) {
+        this.windowMs = windowMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            // Added before the response gets committed, a write that fails only costs a few primary reads
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(now + windowMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.ceil(windowMs / 1000.0));
+            response.addCookie(cookie);
+        }
+
+        if (!write && primaryUntil(request, now) <= now) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Boolean previous = ReadWriteRoutingDataSource.setPrimaryOnly(Boolean.TRUE);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.setPrimaryOnly(previous);
+        }
+    }
+
+    // A missing or broken cookie is simply ignored, and a client can't keep itself on the primary for longer than the window
+    private long primaryUntil(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return 0;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Math.min(Long.parseLong(cookie.getValue()), now + windowMs);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    // Right after SqlStatsFilter, so its numbers cover the whole request either way
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE + 20;
+    }
+}
@@ -0,0 +1,40 @@
+package com.springboot.blog.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+
+// Startup settings used by the prod profile (application-prod.properties)
+@Configuration(proxyBeanMethods = false)
+public class StartupConfig {
+
+    // With spring.main.lazy-initialization a bean is only created when something first uses it, but @Scheduled
+    // methods are only registered once their bean exists. PostCountCache and CommentCountBuffer must run from startup
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansStartEagerly() {
+        return (beanName, beanDefinition, beanType) -> !MethodIntrospector.selectMethods(beanType,
+                (MethodIntrospector.MetadataLookup<Scheduled>) method -> AnnotatedElementUtils.findMergedAnnotation(method, Scheduled.class))
+                .isEmpty();
+    }
+
+    // What Flyway does when the application starts (only when spring.flyway.enabled):
+    // migrate applies the pending migrations, validate only checks that the applied ones match db/migration,
+    // none skips Flyway (build-time training run of the CDS archive, which has no database)
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${app.flyway.on-startup:migrate}") String onStartup) {
+        return flyway -> {
+            switch (onStartup) {
+                case "migrate" -> flyway.migrate();
+                case "validate" -> flyway.validate();
+                case "none" -> {
+                }
+                default -> throw new IllegalArgumentException("app.flyway.on-startup must be migrate, validate or none: " + onStartup);
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.springboot.blog.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+// Only active with spring.threads.virtual.enabled=true (Tomcat then runs each request on its own virtual thread).
+// 1. Puts a BulkheadDataSource in front of the connection pool
+// 2. Reports virtual threads that get pinned to their carrier thread (see VirtualThreadPinningMonitor)
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // static, so the post processor is registered before the DataSource bean gets created
+    @Bean
+    public static BeanPostProcessor dataSourceBulkheadPostProcessor(Environment environment) {
+        int permits = environment.getProperty("app.datasource.bulkhead.permits", Integer.class, 10);
+        long acquireTimeoutMs = environment.getProperty("app.datasource.bulkhead.acquire-timeout-ms", Long.class, 30000L);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof BulkheadDataSource)) {
+                    return new BulkheadDataSource(dataSource, permits, acquireTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // db.bulkhead.permits.available / db.bulkhead.permits.waiting, next to the hikaricp.* pool metrics
+    @Bean
+    public MeterBinder dataSourceBulkheadMetrics(DataSource dataSource) {
+        return registry -> {
+            BulkheadDataSource bulkhead;
+            try {
+                if (!dataSource.isWrapperFor(BulkheadDataSource.class)) {
+                    return;
+                }
+                bulkhead = dataSource.unwrap(BulkheadDataSource.class);
+            } catch (SQLException e) {
+                return;
+            }
+            Gauge.builder("db.bulkhead.permits.available", bulkhead, BulkheadDataSource::getAvailablePermits)
+                    .description("Database permits that are free right now")
+                    .register(registry);
+            Gauge.builder("db.bulkhead.permits.waiting", bulkhead, BulkheadDataSource::getQueueLength)
+                    .description("Threads waiting for a database permit")
+                    .register(registry);
+            Gauge.builder("db.bulkhead.permits.max", bulkhead, BulkheadDataSource::getMaxPermits)
+                    .description("Maximum number of connections that can be checked out at the same time")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(Environment environment, MeterRegistry registry) {
+        long thresholdMs = environment.getProperty("app.threads.virtual.pinned-threshold-ms", Long.class, 20L);
+        return new VirtualThreadPinningMonitor(registry, thresholdMs);
+    }
+}
@@ -1,12 +1,17 @@
 package com.springboot.blog.controller;
 
 
+import com.springboot.blog.payload.CommentBatchResponse;
 import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.CommentResponse;
+import com.springboot.blog.payload.CommentSubmission;
 import com.springboot.blog.service.CommentService;
+import com.springboot.blog.utils.AppConstants;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
@@ -28,10 +33,48 @@ public class CommentController {
 
     }
 
-    //2. REST API endpoint for get all comments
+    //1.1 Same endpoint with ?async=true: the comment is queued and written in the background together with others.
+    // Answers 202 Accepted with a tracking id (and its status URL in Location), or 503 when the queue is full
+    @PostMapping(value = "posts/{postId}/comments", params = "async=true")
+    public ResponseEntity<CommentSubmission> submitComment(@PathVariable(value = "postId") long postId,
+                                                           @RequestBody CommentDto commentDto) {
+        CommentSubmission submission = commentService.submitComment(postId, commentDto);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/comments/submissions/" + submission.getTrackingId()))
+                .body(submission);
+    }
+
+    //1.2 REST API end point to check on an async comment: PENDING, CREATED (with the commentId) or FAILED
+    @GetMapping("comments/submissions/{trackingId}")
+    public CommentSubmission getSubmission(@PathVariable(value = "trackingId") String trackingId) {
+        return commentService.getSubmission(trackingId);
+    }
+
+    //1.4 REST API end point for the comments of several posts at once, e.g. ?postIds=1,2,3&limit=5
+    // Returns the first limit comments of every post (by id), post ids that don't exist are listed in missingPostIds
+    @GetMapping(value = "comments", params = "postIds")
+    public CommentBatchResponse getCommentsByPostIds(
+            @RequestParam(value = "postIds") List<Long> postIds,
+            @RequestParam(value = "limit", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int limit) {
+        return commentService.getCommentsByPostIds(postIds, limit);
+    }
+
+    //1.3 REST API end point for bulk creating comments (imports), the post is loaded once and inserts are batched
+    @PostMapping("posts/{postId}/comments/batch")
+    public ResponseEntity<List<Long>> createComments(@PathVariable(value = "postId") long postId,
+                                                     @RequestBody List<CommentDto> commentDtos) {
+        return new ResponseEntity<>(commentService.createComments(postId, commentDtos), HttpStatus.CREATED);
+    }
+
+    //2. REST API endpoint for get all comments, one bounded page at a time
+    // Use pageNo for page mode, or pass the nextCursor of the previous page as cursor for keyset mode
     @GetMapping("posts/{postId}/comments")
-    public List<CommentDto> getCommentsByPostId(@PathVariable(value = "postId") long postId){
-        return commentService.getCommentsByPostId(postId);
+    public CommentResponse getCommentsByPostId(
+            @PathVariable(value = "postId") long postId,
+            @RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "cursor", required = false) String cursor){
+        return commentService.getCommentsByPostId(postId, pageNo, pageSize, cursor);
     }
 
     //3. REST API endpoint to get the comment by commentId if it belongs to the PostId
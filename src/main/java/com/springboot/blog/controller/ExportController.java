@@ -0,0 +1,34 @@
+package com.springboot.blog.controller;
+
+import com.springboot.blog.service.ExportService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/api/export")
+public class ExportController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    // REST endpoint to dump every post and comment as newline-delimited JSON
+    // StreamingResponseBody writes straight to the response from an async thread while the rows are being read,
+    // so nothing is buffered in memory and the request thread is released right away
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> exportPostsAndComments() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"blog-export.ndjson\"")
+                .body(exportService::exportPostsAndComments);
+    }
+}
@@ -1,12 +1,20 @@
 package com.springboot.blog.controller;
 
+import com.springboot.blog.cache.PostPageCache;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.PostBatchResponse;
+import com.springboot.blog.payload.PostCursorResponse;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostWithComments;
 import com.springboot.blog.service.PostService;
 import com.springboot.blog.utils.AppConstants;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -20,10 +28,14 @@ public class PostController {
     // Step 1: Inject the PostService interface to handle the business logic
     private final PostService postService;
 
+    // Serialized first pages of the default listing
+    private final PostPageCache postPageCache;
+
     // Step 2: Constructor-based dependency injection
     // Since there’s only one constructor, Spring will autowire this automatically (Spring 4.3+)
-    public PostController(PostService postService) {
+    public PostController(PostService postService, PostPageCache postPageCache) {
         this.postService = postService;
+        this.postPageCache = postPageCache;
     }
 
     // Step 3: REST endpoint to create a blog post
@@ -38,30 +50,95 @@ public class PostController {
     // Step 4: REST endpoint to retrieve all blog posts
     // @GetMapping handles HTTP GET requests
     // Updated for Pagination and Sorting
+    // view=summary (or fields=title,description) leaves the content body out of both the SQL and the response
+    // The first pages of the default listing (exact count, full view, bounded page size) are written from PostPageCache as is
     @GetMapping
-    public PostResponse getAllPosts(
+    public ResponseEntity<?> getAllPosts(
             @RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
             @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
             @RequestParam(value = "sortBy", defaultValue = AppConstants.DEFAULT_SORT_BY, required = false) String sortBy,
-            @RequestParam(value = "sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false) String sortDir
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false) String sortDir,
+            @RequestParam(value = "count", defaultValue = AppConstants.DEFAULT_COUNT_MODE, required = false) String countMode,
+            @RequestParam(value = "view", defaultValue = AppConstants.DEFAULT_POST_VIEW, required = false) String view,
+            @RequestParam(value = "fields", required = false) String fields
+    ) {
+        if (countMode.equalsIgnoreCase(AppConstants.DEFAULT_COUNT_MODE) && view.equalsIgnoreCase(AppConstants.DEFAULT_POST_VIEW)
+                && fields == null && postPageCache.isCacheable(pageNo, pageSize)) {
+            byte[] json = postPageCache.get(pageNo, pageSize, sortBy, sortDir,
+                    () -> postService.getAllPosts(pageNo, pageSize, sortBy, sortDir, countMode, view, null));
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json);
+        }
+        return ResponseEntity.ok(postService.getAllPosts(pageNo, pageSize, sortBy, sortDir, countMode, view, fields));
+    }
+
+    // Step 4.1: Same endpoint in keyset (cursor) mode, picked whenever the request carries a cursor parameter
+    // Start with an empty cursor (?cursor=) and keep passing back the nextCursor from the previous response
+    @GetMapping(params = "cursor")
+    public PostCursorResponse getAllPostsByCursor(
+            @RequestParam(value = "cursor") String cursor,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.DEFAULT_SORT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false) String sortDir,
+            @RequestParam(value = "view", defaultValue = AppConstants.DEFAULT_POST_VIEW, required = false) String view,
+            @RequestParam(value = "fields", required = false) String fields
     ) {
-        return postService.getAllPosts(pageNo, pageSize, sortBy, sortDir);
+        return postService.getAllPostsByCursor(cursor, pageSize, sortBy, sortDir, view, fields);
+    }
+
+    // Step 4.2: Several posts by id in one request, e.g. /api/posts?ids=7,3,12
+    // The posts come back in the order of the ids, ids without a post are listed in missingIds (still 200 OK)
+    @GetMapping(params = "ids")
+    public PostBatchResponse getPostsByIds(@RequestParam(value = "ids") List<Long> ids) {
+        return postService.getPostsByIds(ids);
+    }
+
+    // Step 4.3: Full-text search over title, description and content, best matches first
+    // e.g. /api/posts/search?q=spring boot, "exact phrase", -excluded and prefix* work as well
+    @GetMapping("/search")
+    public PostResponse searchPosts(
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "view", defaultValue = AppConstants.DEFAULT_SEARCH_VIEW, required = false) String view,
+            @RequestParam(value = "fields", required = false) String fields
+    ) {
+        return postService.searchPosts(query, pageNo, pageSize, view, fields);
     }
 
     //Step 5: REST endpoint to retrieve post by id
     // @GetMapping handles HTTP GET requests
+    // The response carries the post version as a strong ETag. A client sending it back in If-None-Match gets
+    // 304 Not Modified, checked against the version column only without loading the post.
     @GetMapping("/{id}")
-    public ResponseEntity<PostDto> getPostById(@PathVariable(name = "id") long id){
-        return ResponseEntity.ok(postService.getPostById(id));
+    public ResponseEntity<PostDto> getPostById(@PathVariable(name = "id") long id, WebRequest webRequest){
+        if (webRequest.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                && webRequest.checkNotModified(toETag(postService.getPostVersion(id)))) {
+            // checkNotModified already set the 304 status and the ETag header
+            return null;
+        }
+        PostDto postDto = postService.getPostById(id);
+        return ResponseEntity.ok().eTag(toETag(postDto.getVersion())).body(postDto);
+    }
+
+    // Step 5.1: Same endpoint with ?include=comments, the post and its first commentLimit comments in one response
+    // and one query, instead of a second call to /api/posts/{id}/comments. Sent without an ETag: the version of the
+    // post does not change when comments are added
+    @GetMapping(value = "/{id}", params = "include=comments")
+    public PostWithComments getPostWithComments(
+            @PathVariable(name = "id") long id,
+            @RequestParam(value = "commentLimit", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int commentLimit) {
+        return postService.getPostWithComments(id, commentLimit);
     }
 
     // Step 6: REST endpoint to update post by id
     //@PutMapping handles HTTP update requests
+    // With If-Match the update only goes through if the post is still at that version, otherwise 412 Precondition Failed
     @PutMapping("/{id}")
-    public ResponseEntity<PostDto> updatePost(@RequestBody PostDto postDto, @PathVariable(name = "id") Long id){
+    public ResponseEntity<PostDto> updatePost(@RequestBody PostDto postDto, @PathVariable(name = "id") Long id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 
-        PostDto postResponse = postService.updatePost(postDto, id);
-        return new ResponseEntity<>(postResponse, HttpStatus.OK);
+        PostDto postResponse = postService.updatePost(postDto, id, parseIfMatch(ifMatch));
+        return ResponseEntity.ok().eTag(toETag(postResponse.getVersion())).body(postResponse);
     }
 
     // Step 7: REST endpoint to delete post by id
@@ -72,6 +149,35 @@ public class PostController {
         return new ResponseEntity<>("Post entity deleted successfully", HttpStatus.OK);
     }
 
+    // Step 7.1: Same endpoint with ?async=true, for posts with a lot of comments.
+    // Answers 202 Accepted right away, the post disappears once all of its comments have been deleted in batches
+    @DeleteMapping(value = "/{id}", params = "async=true")
+    public ResponseEntity<String> deletePostInBackground(@PathVariable(name = "id") Long id){
+        postService.deletePostByIdInBackground(id);
+        return new ResponseEntity<>("Post entity is being deleted", HttpStatus.ACCEPTED);
+    }
+
+    private static String toETag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // If-Match: * (or no header) means any version, otherwise it must be one of our strong ETags.
+    // A weak or unknown tag can never match, so it fails the precondition like a stale version would
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // falls through to the 412 below
+            }
+        }
+        throw new BlogAPIException(HttpStatus.PRECONDITION_FAILED, "If-Match does not match the current version of the post");
+    }
+
 
 
 }
@@ -12,11 +12,18 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 
 @Entity
-@Table(name = "comments")
+// (post_id, id) index: listing the comments of a post ordered by id is a range scan on this index
+@Table(name = "comments", indexes = @Index(name = "idx_comments_post_id_id", columnList = "post_id, id"))
 public class Comment {
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
 
+    // Also the INCREMENT BY of comments_seq, see CommentSequenceCheck
+    public static final int ID_ALLOCATION_SIZE = 50;
+
+    @Id
+    // Sequence instead of IDENTITY so Hibernate can JDBC-batch inserts. With the pooled optimizer one
+    // call to the sequence hands out a block of allocationSize ids, it must match the sequence INCREMENT BY
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "comments_seq")
+    @SequenceGenerator(name = "comments_seq", sequenceName = "comments_seq", allocationSize = ID_ALLOCATION_SIZE)
     private long id;
     private String name;
     private String email;
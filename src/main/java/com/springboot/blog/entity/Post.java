@@ -6,6 +6,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -22,9 +23,13 @@ import java.util.Set;
 @Entity
 
 // Maps this entity to the "posts" table and sets a unique constraint on the "title" column
+// The (column, id) indexes back keyset pagination on the other sortable columns, title is already unique
 @Table(
         name = "posts",
-        uniqueConstraints = {@UniqueConstraint(columnNames = {"title"})}
+        uniqueConstraints = {@UniqueConstraint(columnNames = {"title"})},
+        indexes = {
+                @Index(name = "idx_posts_description_id", columnList = "description, id")
+        }
 )
 public class Post {
 
@@ -47,7 +52,23 @@ public class Post {
     @Column(name = "content", nullable = false)
     private String content;
 
+    // Optimistic locking: Hibernate adds "where version = ?" to every update and bumps the value,
+    // so a stale update fails instead of overwriting someone else's changes. Also served as the ETag of the post.
+    // The column default lets ddl-auto add it to a table that already has rows
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Number of comments on the post, so listings don't have to count them per post.
+    // Only ever changed by the set-based UPDATEs of CommentCountBuffer (updatable = false keeps updatePost from
+    // writing back a stale value it read earlier)
+    @ColumnDefault("0")
+    @Column(name = "comment_count", nullable = false, updatable = false)
+    private long commentCount;
+
     // This creates a set of comments and also enables for bidirection relationship
+    // PostServiceImpl.deletePostById does not go through this cascade, it deletes the comments with one statement
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL,orphanRemoval = true )       // This enables bidirection relationship
     private Set<Comment> comments = new HashSet<>();
 }
@@ -20,4 +20,13 @@ public class BlogAPIException extends RuntimeException {
         this.httpStatus = httpStatus;
         this.message = message1;
     }
+
+    public HttpStatus getHttpStatus() {
+        return httpStatus;
+    }
+
+    @Override
+    public String getMessage() {
+        return message;
+    }
 }
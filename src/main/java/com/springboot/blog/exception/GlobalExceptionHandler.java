@@ -0,0 +1,22 @@
+package com.springboot.blog.exception;
+
+import com.springboot.blog.payload.ErrorDetails;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.Date;
+
+// Translates the exceptions thrown by the service layer into proper HTTP responses.
+// ResourceNotFoundException already carries @ResponseStatus, but BlogAPIException decides its status at runtime
+// so without this handler it would always end up as a 500.
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    @ExceptionHandler(BlogAPIException.class)
+    public ResponseEntity<ErrorDetails> handleBlogAPIException(BlogAPIException exception, WebRequest webRequest) {
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), exception.getMessage(), webRequest.getDescription(false));
+        return new ResponseEntity<>(errorDetails, exception.getHttpStatus());
+    }
+}
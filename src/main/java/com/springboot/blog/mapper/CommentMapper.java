@@ -0,0 +1,40 @@
+package com.springboot.blog.mapper;
+
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.payload.CommentDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Converts between Comment and CommentDto with plain getters and setters, the post is set by the caller
+public final class CommentMapper {
+
+    private CommentMapper() {
+    }
+
+    public static CommentDto mapToCommentDto(Comment comment) {
+        CommentDto commentDto = new CommentDto();
+        commentDto.setId(comment.getId());
+        commentDto.setName(comment.getName());
+        commentDto.setEmail(comment.getEmail());
+        commentDto.setBody(comment.getBody());
+        return commentDto;
+    }
+
+    public static Comment mapToCommentEntity(CommentDto commentDto) {
+        Comment comment = new Comment();
+        comment.setId(commentDto.getId());
+        comment.setName(commentDto.getName());
+        comment.setEmail(commentDto.getEmail());
+        comment.setBody(commentDto.getBody());
+        return comment;
+    }
+
+    public static List<CommentDto> mapToCommentDtos(List<Comment> comments) {
+        List<CommentDto> commentDtos = new ArrayList<>(comments.size());
+        for (Comment comment : comments) {
+            commentDtos.add(mapToCommentDto(comment));
+        }
+        return commentDtos;
+    }
+}
@@ -0,0 +1,78 @@
+package com.springboot.blog.mapper;
+
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.repository.PostSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Converts between Post and PostDto with plain getters and setters.
+// Replaces BeanUtils.copyProperties/ModelMapper, which look the properties up through reflection on every call.
+public final class PostMapper {
+
+    private PostMapper() {
+    }
+
+    public static PostDto mapToPostDto(Post post) {
+        PostDto postDto = new PostDto();
+        postDto.setId(post.getId());
+        postDto.setTitle(post.getTitle());
+        postDto.setDescription(post.getDescription());
+        postDto.setContent(post.getContent());
+        postDto.setCommentCount(post.getCommentCount());
+        postDto.setVersion(post.getVersion());
+        return postDto;
+    }
+
+    public static PostDto mapToPostDto(PostSummary postSummary) {
+        PostDto postDto = new PostDto();
+        postDto.setId(postSummary.getId());
+        postDto.setTitle(postSummary.getTitle());
+        postDto.setDescription(postSummary.getDescription());
+        postDto.setCommentCount(postSummary.getCommentCount());
+        return postDto;
+    }
+
+    // The version and the comment count are left out on purpose, the client can't set them
+    public static Post mapToPostEntity(PostDto postDto) {
+        Post post = new Post();
+        post.setId(postDto.getId());
+        post.setTitle(postDto.getTitle());
+        post.setDescription(postDto.getDescription());
+        post.setContent(postDto.getContent());
+        return post;
+    }
+
+    public static List<PostDto> mapToPostDtos(List<Post> posts) {
+        return mapToPostDtos(posts, PostMapper::mapToPostDto);
+    }
+
+    public static <T> List<PostDto> mapToPostDtos(List<T> rows, Function<? super T, PostDto> rowMapper) {
+        List<PostDto> postDtos = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            postDtos.add(rowMapper.apply(row));
+        }
+        return postDtos;
+    }
+
+    // Builds the PostResponse for a page of rows. The totals are only filled in when we have a Page, a Slice
+    // (count=none/cached) does not know them
+    public static <T> PostResponse mapToPostResponse(Slice<T> rows, Function<? super T, PostDto> rowMapper) {
+        PostResponse postResponse = new PostResponse();
+        postResponse.setContent(mapToPostDtos(rows.getContent(), rowMapper));
+        postResponse.setPageNo(rows.getNumber());
+        postResponse.setPageSize(rows.getSize());
+        postResponse.setLast(rows.isLast());
+        postResponse.setFirst(rows.isFirst());
+        if (rows instanceof Page<T> page) {
+            postResponse.setTotalElements(page.getTotalElements());
+            postResponse.setTotalPages(page.getTotalPages());
+        }
+        return postResponse;
+    }
+}
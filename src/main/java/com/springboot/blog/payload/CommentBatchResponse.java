@@ -0,0 +1,19 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// Answer to GET /api/comments?postIds=...
+// The first comments (by id) of every requested post, keyed by post id in the order of the request.
+// A post without comments maps to an empty list, post ids that don't exist are listed in missingPostIds
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentBatchResponse {
+    private Map<Long, List<CommentDto>> comments;
+    private List<Long> missingPostIds;
+}
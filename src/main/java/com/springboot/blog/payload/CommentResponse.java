@@ -0,0 +1,25 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Paged envelope for the comments of a post.
+// nextCursor is filled in both modes, so a client can start with pageNo and continue with the cursor.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CommentResponse {
+    private List<CommentDto> content;
+
+    // Only set in page mode
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer pageNo;
+
+    private int pageSize;
+    private String nextCursor;
+    private boolean last;
+}
@@ -0,0 +1,29 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Answer to POST /api/posts/{postId}/comments?async=true and GET /api/comments/submissions/{trackingId}.
+// The comment is written later by CommentWriteQueue, poll the submission until it is CREATED or FAILED.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CommentSubmission {
+
+    public enum Status {
+        PENDING, CREATED, FAILED
+    }
+
+    private String trackingId;
+    private long postId;
+    private Status status;
+
+    // Id of the new comment, once it is CREATED
+    private Long commentId;
+
+    // Why it FAILED
+    private String message;
+}
@@ -0,0 +1,27 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One line of the NDJSON export. type is "post" or "comment", only the matching field is filled in
+// and comments also carry the id of the post they belong to.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ExportRecord {
+    private String type;
+    private Long postId;
+    private PostDto post;
+    private CommentDto comment;
+
+    public static ExportRecord ofPost(PostDto post) {
+        return new ExportRecord("post", null, post, null);
+    }
+
+    public static ExportRecord ofComment(long postId, CommentDto comment) {
+        return new ExportRecord("comment", postId, null, comment);
+    }
+}
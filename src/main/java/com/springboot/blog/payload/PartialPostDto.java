@@ -0,0 +1,10 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// A post in a listing that only asked for some of the fields (view=summary, fields=...).
+// The fields that were not selected are null and @JsonInclude(NON_NULL) leaves them out of the JSON,
+// PostDto itself is written the same way on every endpoint, nulls included
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PartialPostDto extends PostDto {
+}
@@ -0,0 +1,17 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Answer to GET /api/posts?ids=...
+// content follows the order of the requested ids, ids without a post are listed in missingIds instead of failing the batch
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostBatchResponse {
+    private List<PostDto> content;
+    private List<Long> missingIds;
+}
@@ -0,0 +1,19 @@
+package com.springboot.blog.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Cursor (keyset) variant of PostResponse.
+// There is no page number or total here, the client just passes nextCursor back to get the following page.
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostCursorResponse {
+    private List<PostDto> content;
+    private int pageSize;
+    private String nextCursor;
+    private boolean last;
+}
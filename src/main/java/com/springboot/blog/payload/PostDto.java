@@ -9,6 +9,7 @@ import lombok.Data;
 // - Getters and setters for all fields
 // - toString(), equals(), and hashCode() methods
 // This helps reduce boilerplate code and keeps the class clean.
+// Listings that select only some fields (view=summary, fields=...) return PartialPostDto instead
 @Data
 public class PostDto {
 
@@ -23,4 +24,10 @@ public class PostDto {
 
     // Full content/body of the post
     private String content;
+
+    // Number of comments on the post, refreshed every few seconds (see CommentCountBuffer)
+    private Long commentCount;
+
+    // Version of the post, changes on every update (the same value is sent as the ETag header)
+    private Long version;
 }
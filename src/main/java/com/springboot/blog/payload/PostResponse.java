@@ -1,5 +1,6 @@
 package com.springboot.blog.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,8 +17,13 @@ public class PostResponse {
     private List<PostDto> content;
     private int pageNo;
     private int pageSize;
-    private long totalElements;
-    private int totalPages;
+
+    // Left out of the JSON when the client asked for count=none, we skip the COUNT query in that case
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer totalPages;
+
     private boolean last;
     private boolean first;
 }
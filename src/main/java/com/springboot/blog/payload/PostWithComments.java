@@ -0,0 +1,19 @@
+package com.springboot.blog.payload;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Answer to GET /api/posts/{id}?include=comments: the usual post fields with its first comments next to them.
+// commentCount tells the client whether there are more to page through (GET /api/posts/{postId}/comments)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostWithComments {
+    @JsonUnwrapped
+    private PostDto post;
+    private List<CommentDto> comments;
+}
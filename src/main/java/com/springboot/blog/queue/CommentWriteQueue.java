@@ -0,0 +1,244 @@
+package com.springboot.blog.queue;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.springboot.blog.cache.CommentCountBuffer;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.CommentSubmission;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.utils.TransactionUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Write-behind path for POST /api/posts/{postId}/comments?async=true.
+// Requests only put the comment on a bounded queue and get a tracking id back. A single writer thread takes
+// whatever has piled up (up to max-batch comments) and inserts it in one transaction, so a burst of comments
+// costs a handful of commits instead of one transaction and one pooled connection per request.
+// - Backpressure: when the queue is full submit() fails with 503 and the client should retry later
+// - Shutdown: stop() runs after the web server stopped taking requests and writes out what is still queued
+// - Metrics: comments.async.queue.size, comments.async.rejected, comments.async.batch.size, comments.async.commit
+@Component
+public class CommentWriteQueue implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommentWriteQueue.class);
+
+    private record PendingComment(String trackingId, long postId, CommentDto commentDto) {
+    }
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final CommentCountBuffer commentCountBuffer;
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<PendingComment> queue;
+    private final int maxBatch;
+    private final long drainTimeoutMs;
+
+    // Status of recent submissions, for GET /api/comments/submissions/{trackingId}
+    private final Cache<String, CommentSubmission> submissions;
+
+    private final Counter rejected;
+    private final DistributionSummary batchSize;
+    private final Timer commitTimer;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public CommentWriteQueue(PostRepository postRepository, CommentRepository commentRepository,
+                             CommentCountBuffer commentCountBuffer, PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.comments.async.queue-capacity:10000}") int queueCapacity,
+                             @Value("${app.comments.async.max-batch:500}") int maxBatch,
+                             @Value("${app.comments.async.drain-timeout-ms:30000}") long drainTimeoutMs,
+                             @Value("${app.comments.async.status-ttl-ms:600000}") long statusTtlMs) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.commentCountBuffer = commentCountBuffer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.drainTimeoutMs = drainTimeoutMs;
+        this.submissions = Caffeine.newBuilder()
+                .maximumSize(queueCapacity * 10L)
+                .expireAfterWrite(Duration.ofMillis(statusTtlMs))
+                .build();
+
+        Gauge.builder("comments.async.queue.size", queue, BlockingQueue::size)
+                .description("Comments waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("comments.async.queue.remaining", queue, BlockingQueue::remainingCapacity)
+                .description("Free slots left in the comment queue")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("comments.async.rejected")
+                .description("Comments turned away because the queue was full")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("comments.async.batch.size")
+                .description("Comments written per transaction")
+                .register(meterRegistry);
+        this.commitTimer = Timer.builder("comments.async.commit")
+                .description("Time to insert and commit one batch of queued comments")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public CommentSubmission submit(long postId, CommentDto commentDto) {
+        if (!running) {
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Comments are not being accepted right now, retry later");
+        }
+        String trackingId = UUID.randomUUID().toString();
+        CommentSubmission submission = new CommentSubmission(trackingId, postId, CommentSubmission.Status.PENDING, null, null);
+        submissions.put(trackingId, submission);
+        if (!queue.offer(new PendingComment(trackingId, postId, commentDto))) {
+            submissions.invalidate(trackingId);
+            rejected.increment();
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "Too many comments waiting to be written, retry later");
+        }
+        return submission;
+    }
+
+    public CommentSubmission getSubmission(String trackingId) {
+        CommentSubmission submission = submissions.getIfPresent(trackingId);
+        if (submission == null) {
+            throw new BlogAPIException(HttpStatus.NOT_FOUND, "No submission with tracking id " + trackingId);
+        }
+        return submission;
+    }
+
+    private void runWriter() {
+        List<PendingComment> batch = new ArrayList<>(maxBatch);
+        // Keep going after stop() until the queue is empty
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingComment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Failed to write {} queued comments", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingComment> batch) {
+        batchSize.record(batch.size());
+        try {
+            commitTimer.record(() -> transactionTemplate.executeWithoutResult(status -> insert(batch)));
+        } catch (RuntimeException e) {
+            // One bad comment (e.g. a constraint violation) must not take the others down with it
+            if (batch.size() == 1) {
+                fail(batch.get(0), e.getMessage());
+                return;
+            }
+            for (PendingComment pendingComment : batch) {
+                writeBatch(List.of(pendingComment));
+            }
+        }
+    }
+
+    private void insert(List<PendingComment> batch) {
+        //1. Load every post of the batch in one query
+        Set<Long> postIds = batch.stream().map(PendingComment::postId).collect(Collectors.toSet());
+        Map<Long, Post> posts = new HashMap<>();
+        postRepository.findAllById(postIds).forEach(post -> posts.put(post.getId(), post));
+
+        //2. Insert the comments as JDBC batches, a comment for a post that does not exist fails on its own
+        List<PendingComment> written = new ArrayList<>(batch.size());
+        List<Comment> comments = new ArrayList<>(batch.size());
+        for (PendingComment pendingComment : batch) {
+            Post post = posts.get(pendingComment.postId());
+            if (post == null) {
+                fail(pendingComment, "Post not found with id : '" + pendingComment.postId() + "'");
+                continue;
+            }
+            Comment comment = CommentMapper.mapToCommentEntity(pendingComment.commentDto());
+            comment.setId(0);
+            comment.setPost(post);
+            written.add(pendingComment);
+            comments.add(comment);
+        }
+        commentRepository.saveAll(comments);
+        commentRepository.flush();
+
+        //3. Report the new ids (and count the comments) once the transaction has committed
+        for (int i = 0; i < written.size(); i++) {
+            PendingComment pendingComment = written.get(i);
+            long commentId = comments.get(i).getId();
+            commentCountBuffer.increment(pendingComment.postId());
+            TransactionUtils.afterCommit(() -> submissions.put(pendingComment.trackingId(),
+                    new CommentSubmission(pendingComment.trackingId(), pendingComment.postId(),
+                            CommentSubmission.Status.CREATED, commentId, null)));
+        }
+    }
+
+    private void fail(PendingComment pendingComment, String message) {
+        submissions.put(pendingComment.trackingId(), new CommentSubmission(pendingComment.trackingId(),
+                pendingComment.postId(), CommentSubmission.Status.FAILED, null, message));
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "comment-writer");
+        writer.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        try {
+            writer.join(drainTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("{} queued comments were not written before shutdown", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Lower than the web server's phase: started before it, and stopped only after it stopped accepting requests
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
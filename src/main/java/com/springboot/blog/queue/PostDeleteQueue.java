@@ -0,0 +1,95 @@
+package com.springboot.blog.queue;
+
+import com.springboot.blog.repository.CommentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Background path for DELETE /api/posts/{id}?async=true, meant for posts with a very large number of comments.
+// A single DELETE of 50k comments locks all of them until it commits. Here the comments go chunk-size at a time,
+// every chunk in its own transaction, so no transaction holds more than chunk-size row locks or runs for long.
+// Once no comment is left the caller's final step (deleting the post row) runs in one more transaction, it also
+// takes the comments written in the meantime. Deletes run one after another on a single thread.
+// - A post already being deleted is not queued twice
+// - Shutdown interrupts the running delete between two chunks, the post stays and can be deleted again
+// - Metrics: posts.delete.pending, posts.delete.chunks
+@Component
+public class PostDeleteQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostDeleteQueue.class);
+
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "post-deleter"));
+
+    private final Counter chunks;
+
+    public PostDeleteQueue(CommentRepository commentRepository, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.posts.delete.chunk-size:1000}") int chunkSize) {
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+
+        Gauge.builder("posts.delete.pending", pending, Set::size)
+                .description("Posts waiting to be deleted in the background, including the one being deleted")
+                .register(meterRegistry);
+        this.chunks = Counter.builder("posts.delete.chunks")
+                .description("Comment chunks deleted by background post deletes")
+                .register(meterRegistry);
+    }
+
+    // Returns false when the post is already queued
+    public boolean submit(long postId, Runnable deletePost) {
+        if (!pending.add(postId)) {
+            return false;
+        }
+        executor.execute(() -> {
+            try {
+                delete(postId, deletePost);
+            } catch (RuntimeException e) {
+                logger.error("Background delete of post {} failed", postId, e);
+            } finally {
+                pending.remove(postId);
+            }
+        });
+        return true;
+    }
+
+    private void delete(long postId, Runnable deletePost) {
+        long deleted = 0;
+        int chunk;
+        do {
+            if (Thread.currentThread().isInterrupted()) {
+                logger.warn("Background delete of post {} stopped after {} comments", postId, deleted);
+                return;
+            }
+            chunk = commentRepository.deleteChunkByPostId(postId, chunkSize);
+            deleted += chunk;
+            chunks.increment();
+        } while (chunk == chunkSize);
+
+        transactionTemplate.executeWithoutResult(status -> deletePost.run());
+        logger.info("Deleted post {} and {} comments in the background", postId, deleted);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
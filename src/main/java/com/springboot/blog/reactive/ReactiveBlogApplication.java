@@ -0,0 +1,38 @@
+package com.springboot.blog.reactive;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+
+// Non-blocking read API: GET /api/posts, /api/posts/{id} and /api/posts/{postId}/comments on Netty (port 8081)
+// with R2DBC, next to the servlet application which keeps serving every write.
+// A request waiting on the database holds no thread, a few event loop threads serve thousands of slow clients.
+// Runs as its own application with its own configuration (reactive.properties), it shares the payload classes and
+// the database with the servlet application but none of its beans: no JDBC DataSource, no JPA, no caches.
+// The jar starts the servlet application, this one is started from the same jar with
+// java -Dloader.main=com.springboot.blog.reactive.ReactiveBlogApplication -cp <jar> org.springframework.boot.loader.launch.PropertiesLauncher
+@SpringBootApplication(exclude = {DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class})
+public class ReactiveBlogApplication {
+
+    // Name of the configuration files, reactive.properties and reactive-{profile}.properties
+    public static final String CONFIG_NAME = "reactive";
+
+    // Tomcat is on the classpath for the servlet application, and Spring Boot would run WebFlux on it as well
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(ObjectProvider<NettyServerCustomizer> serverCustomizers) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        serverCustomizers.orderedStream().forEach(factory::addServerCustomizers);
+        return factory;
+    }
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveBlogApplication.class)
+                .properties("spring.config.name=" + CONFIG_NAME)
+                .run(args);
+    }
+}
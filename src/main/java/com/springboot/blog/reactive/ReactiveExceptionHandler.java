@@ -0,0 +1,22 @@
+package com.springboot.blog.reactive;
+
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.payload.ErrorDetails;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Date;
+
+// WebFlux counterpart of GlobalExceptionHandler, same ErrorDetails body and status.
+// ResourceNotFoundException needs no handler, WebFlux honours its @ResponseStatus as well
+@RestControllerAdvice
+public class ReactiveExceptionHandler {
+
+    @ExceptionHandler(BlogAPIException.class)
+    public ResponseEntity<ErrorDetails> handleBlogAPIException(BlogAPIException exception, ServerWebExchange exchange) {
+        ErrorDetails errorDetails = new ErrorDetails(new Date(), exception.getMessage(), "uri=" + exchange.getRequest().getPath());
+        return new ResponseEntity<>(errorDetails, exception.getHttpStatus());
+    }
+}
@@ -0,0 +1,95 @@
+package com.springboot.blog.reactive;
+
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.utils.AppConstants;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+// Same URLs and payloads as the read endpoints of PostController and CommentController.
+// Nothing here blocks: the handler returns right away and the response is written when the rows arrive.
+// Lists are returned as a Flux, with Accept: application/x-ndjson every element is sent as soon as it is read and
+// a slow client only slows down its own query (backpressure goes through Netty and R2DBC down to the database)
+@RestController
+@RequestMapping("/api/posts")
+public class ReactivePostController {
+
+    // Sortable properties of PostDto and their columns
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "id",
+            "title", "title",
+            "description", "description",
+            "content", "content",
+            "commentCount", "comment_count");
+
+    private final ReactivePostRepository postRepository;
+
+    public ReactivePostController(ReactivePostRepository postRepository) {
+        this.postRepository = postRepository;
+    }
+
+    // One page, the COUNT and the page query run at the same time
+    @GetMapping
+    public Mono<PostResponse> getAllPosts(
+            @RequestParam(value = "pageNo", defaultValue = AppConstants.DEFAULT_PAGE_NUMBER, required = false) int pageNo,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_PAGE_SIZE, required = false) int pageSize,
+            @RequestParam(value = "sortBy", defaultValue = AppConstants.DEFAULT_SORT_BY, required = false) String sortBy,
+            @RequestParam(value = "sortDir", defaultValue = AppConstants.DEFAULT_SORT_DIRECTION, required = false) String sortDir
+    ) {
+        String column = SORT_COLUMNS.get(sortBy);
+        if (column == null) {
+            return Mono.error(new BlogAPIException(HttpStatus.BAD_REQUEST, "Cannot sort by " + sortBy));
+        }
+        if (pageNo < 0 || pageSize < 1) {
+            return Mono.error(new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid page"));
+        }
+        // Same rule as PostServiceImpl.getAllPosts: anything but asc sorts descending
+        String direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? "asc" : "desc";
+
+        Mono<Long> count = postRepository.count();
+        Mono<List<PostDto>> page = postRepository.findPage(column, direction, pageSize, (long) pageNo * pageSize).collectList();
+        return Mono.zip(page, count).map(pageAndCount -> {
+            long totalElements = pageAndCount.getT2();
+            int totalPages = (int) ((totalElements + pageSize - 1) / pageSize);
+            return new PostResponse(pageAndCount.getT1(), pageNo, pageSize, totalElements, totalPages,
+                    pageNo >= totalPages - 1, pageNo == 0);
+        });
+    }
+
+    // Every post in id order as a stream of JSON lines, picked with Accept: application/x-ndjson
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PostDto> streamAllPosts() {
+        return postRepository.findAll();
+    }
+
+    @GetMapping("/{id}")
+    public Mono<PostDto> getPostById(@PathVariable(name = "id") long id) {
+        return postRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Post", "id", id)));
+    }
+
+    // The comments of a post ordered by id, continue after the last id of the previous call with afterId
+    @GetMapping("/{postId}/comments")
+    public Flux<CommentDto> getCommentsByPostId(
+            @PathVariable(value = "postId") long postId,
+            @RequestParam(value = "afterId", defaultValue = "0", required = false) long afterId,
+            @RequestParam(value = "pageSize", defaultValue = AppConstants.DEFAULT_COMMENT_PAGE_SIZE, required = false) int pageSize
+    ) {
+        int size = Math.max(1, Math.min(pageSize, AppConstants.MAX_COMMENT_PAGE_SIZE));
+        return postRepository.findComments(postId, afterId, size);
+    }
+}
@@ -0,0 +1,85 @@
+package com.springboot.blog.reactive;
+
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+// Read-only queries of the reactive API, written against the tables the JPA entities map to.
+// Rows are turned into the payload classes directly, there are no entities on this side.
+// A Flux asks the driver for rows as the subscriber (in the end the HTTP client) consumes them
+@Repository
+public class ReactivePostRepository {
+
+    private static final String POST_COLUMNS = "id, title, description, content, comment_count, version";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactivePostRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    // sortColumn and direction are put into the SQL as is, the caller only passes whitelisted values
+    public Flux<PostDto> findPage(String sortColumn, String direction, int limit, long offset) {
+        return databaseClient.sql("select " + POST_COLUMNS + " from posts order by " + sortColumn + " " + direction
+                        + ", id " + direction + " limit :limit offset :offset")
+                .bind("limit", limit)
+                .bind("offset", offset)
+                .map(ReactivePostRepository::toPostDto)
+                .all();
+    }
+
+    public Mono<Long> count() {
+        return databaseClient.sql("select count(*) from posts")
+                .map(row -> row.get(0, Long.class))
+                .one();
+    }
+
+    // Every post in id order
+    public Flux<PostDto> findAll() {
+        return databaseClient.sql("select " + POST_COLUMNS + " from posts order by id")
+                .map(ReactivePostRepository::toPostDto)
+                .all();
+    }
+
+    public Mono<PostDto> findById(long id) {
+        return databaseClient.sql("select " + POST_COLUMNS + " from posts where id = :id")
+                .bind("id", id)
+                .map(ReactivePostRepository::toPostDto)
+                .one();
+    }
+
+    // Keyset page of the comments of a post, walks the (post_id, id) index
+    public Flux<CommentDto> findComments(long postId, long afterId, int limit) {
+        return databaseClient.sql("select id, name, email, body from comments where post_id = :postId and id > :afterId"
+                        + " order by id limit :limit")
+                .bind("postId", postId)
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(ReactivePostRepository::toCommentDto)
+                .all();
+    }
+
+    private static PostDto toPostDto(Readable row) {
+        PostDto postDto = new PostDto();
+        postDto.setId(row.get("id", Long.class));
+        postDto.setTitle(row.get("title", String.class));
+        postDto.setDescription(row.get("description", String.class));
+        postDto.setContent(row.get("content", String.class));
+        postDto.setCommentCount(row.get("comment_count", Long.class));
+        postDto.setVersion(row.get("version", Long.class));
+        return postDto;
+    }
+
+    private static CommentDto toCommentDto(Readable row) {
+        CommentDto commentDto = new CommentDto();
+        commentDto.setId(row.get("id", Long.class));
+        commentDto.setName(row.get("name", String.class));
+        commentDto.setEmail(row.get("email", String.class));
+        commentDto.setBody(row.get("body", String.class));
+        return commentDto;
+    }
+}
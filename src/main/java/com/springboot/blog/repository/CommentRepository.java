@@ -1,9 +1,23 @@
 package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Comment;
+import com.springboot.blog.utils.AppConstants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
 
@@ -11,4 +25,56 @@ public interface CommentRepository extends JpaRepository<Comment, Long> {
     // We need custom method because this is comment entity and standard Jpa can only provide findby methods using commentId
     List<Comment> findByPostId(long postId);
 
+    // One page of the comments of a post (page mode). A Slice reads pageSize + 1 rows instead of running a COUNT
+    Slice<Comment> findByPostId(long postId, Pageable pageable);
+
+    // Next page of the comments of a post after the given comment id (keyset mode), walks the (post_id, id) index
+    List<Comment> findByPostIdAndIdGreaterThanOrderByIdAsc(long postId, long id, Limit limit);
+
+    // The first perPost comments (by id) of each of the given posts in one query, ordered by post and id.
+    // Native because JPQL has no window functions, the (post_id, id) index provides the rows already in window order
+    @Query(value = "select id, name, email, body, post_id from ("
+            + "select c.*, row_number() over (partition by c.post_id order by c.id) as rn from comments c where c.post_id in :postIds"
+            + ") ranked where rn <= :perPost order by post_id, id", nativeQuery = true)
+    List<Comment> findFirstByPostIdIn(@Param("postIds") Collection<Long> postIds, @Param("perPost") int perPost);
+
+    // Streams every comment through a server-side cursor, same rules as PostRepository.streamAllBy()
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select c from Comment c order by c.id")
+    Stream<Comment> streamAllBy();
+
+    // Finds the comment only if it belongs to the post, the ownership check is part of the WHERE clause
+    // so we don't need to load the post or the lazy comment.getPost() to compare ids
+    Optional<Comment> findByIdAndPostId(long id, long postId);
+
+    // Set based update, returns the number of updated rows (0 means the comment is missing or belongs to another post)
+    @Transactional
+    @Modifying
+    @Query("update Comment c set c.name = :name, c.email = :email, c.body = :body where c.id = :id and c.post.id = :postId")
+    int updateByIdAndPostId(@Param("id") long id, @Param("postId") long postId,
+                            @Param("name") String name, @Param("email") String email, @Param("body") String body);
+
+    // Set based delete, returns the number of deleted rows (0 means the comment is missing or belongs to another post)
+    @Transactional
+    @Modifying
+    @Query("delete from Comment c where c.id = :id and c.post.id = :postId")
+    int deleteByIdAndPostId(@Param("id") long id, @Param("postId") long postId);
+
+    // Every comment of a post in one statement, nothing is loaded into the persistence context
+    @Transactional
+    @Modifying
+    @Query("delete from Comment c where c.post.id = :postId")
+    int deleteByPostId(@Param("postId") long postId);
+
+    // At most limit comments of a post, each call is its own short transaction (see PostDeleteQueue).
+    // Native because JPQL has no LIMIT in subqueries, the (post_id, id) index finds the rows
+    @Transactional
+    @Modifying
+    @Query(value = "delete from comments where id in (select id from comments where post_id = :postId order by id limit :limit)",
+            nativeQuery = true)
+    int deleteChunkByPostId(@Param("postId") long postId, @Param("limit") int limit);
+
 }
@@ -1,7 +1,27 @@
 package com.springboot.blog.repository;
 
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.utils.AppConstants;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
     // We are not needed to write any methods here.
@@ -9,5 +29,68 @@ public interface PostRepository extends JpaRepository<Post, Long> {
     // SimpleJpaRepository.java class --> has the implementations for all methods in JPARepository
     // Also @Repository , @Transactional is already internally annotated on top of SimpleJPARepository.java class
 
+    // The listing queries below take the type to return: Post.class for the full entity or PostSummary.class
+    // for the summary projection, which makes Spring Data select only the projected columns.
+
+    // Same as findAll(pageable), with a projection
+    <T> Page<T> findPageBy(Pageable pageable, Class<T> type);
+
+    // Same as findAll(pageable) but returns a Slice, Spring Data then reads pageSize + 1 rows to know if there
+    // is a next page instead of running a SELECT COUNT(*) next to every page
+    <T> Slice<T> findSliceBy(Pageable pageable, Class<T> type);
+
+    // The given posts in no particular order (search results, multi-get, ...)
+    // The multi-get calls it outside of a service transaction, hence its own read-only one
+    @Transactional(readOnly = true)
+    <T> List<T> findByIdIn(Collection<Long> ids, Class<T> type);
+
+    // The ids among the given ones that belong to a post
+    @Query("select p.id from Post p where p.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Keyset (seek) pagination. When the position is a KeysetScrollPosition Spring Data turns the keys into a
+    // WHERE (sortColumn, id) > (?, ?) style predicate instead of an OFFSET, so every page costs the same.
+    <T> Window<T> findBy(ScrollPosition position, Sort sort, Limit limit, Class<T> type);
+
+    // Streams every post through a server-side cursor instead of loading them into a List.
+    // Must be consumed (and closed) inside a transaction, PostgreSQL only honours the fetch size with autocommit off
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = AppConstants.EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select p from Post p order by p.id")
+    Stream<Post> streamAllBy();
+
+    // The post and its first comments (by id) in one query, one [Post, Comment] row per comment.
+    // Comment is joined as an entity of its own instead of fetched into Post.comments, so the collection is never
+    // initialized and the limit goes into the SQL. A post without comments is a single [Post, null] row
+    @Query("select p, c from Post p left join Comment c on c.post = p where p.id = :id order by c.id")
+    List<Object[]> findWithFirstComments(@Param("id") Long id, Limit limit);
+
+    // Only the version column, enough to answer a conditional GET (If-None-Match) without reading the post itself
+    // Called outside of a service transaction (see PostServiceImpl.getPostVersion), hence its own read-only one
+    @Query("select p.version from Post p where p.id = :id")
+    @Transactional(readOnly = true)
+    Optional<Long> findVersionById(Long id);
+
+    // Applies the same comment count change to several posts at once (see CommentCountBuffer).
+    // A bulk update does not touch the version, a new comment doesn't make an edit of the post itself stale
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.commentCount = p.commentCount + :delta where p.id in :ids")
+    int addToCommentCount(@Param("delta") long delta, @Param("ids") Collection<Long> ids);
+
+    // Deletes the post row without loading it, returns 0 when there is no such post.
+    // Does not cascade: the comments must be gone already (CommentRepository.deleteByPostId)
+    @Transactional
+    @Modifying
+    @Query("delete from Post p where p.id = :id")
+    int deleteOneById(@Param("id") long id);
+
+    // Recomputes every comment counter from the comments table
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.commentCount = (select count(c) from Comment c where c.post = p)")
+    int recountComments();
 
 }
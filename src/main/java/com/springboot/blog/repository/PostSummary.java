@@ -0,0 +1,11 @@
+package com.springboot.blog.repository;
+
+// Closed interface projection of Post used by the listing pages (view=summary).
+// Spring Data only selects these columns, so the content body is never read from the database.
+// commentCount is a column of posts as well, so showing it costs no extra query.
+public interface PostSummary {
+    Long getId();
+    String getTitle();
+    String getDescription();
+    long getCommentCount();
+}
@@ -0,0 +1,225 @@
+package com.springboot.blog.search;
+
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.exception.BlogAPIException;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.utils.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// In-memory Lucene index over the title, description and content of every post, used by GET /api/posts/search.
+// It is built once at startup by streaming the posts table and then kept up to date by PostServiceImpl, which
+// calls index()/remove() for every created, updated or deleted post (after the transaction commits).
+// Only the post id is stored in the index, the rows themselves are read from the database by id.
+// The index lives in this JVM and only sees the writes handled by this instance: with several instances each one
+// misses the posts created, updated or deleted through the others until it restarts, so results differ between
+// instances (a deleted post found elsewhere is skipped when its row is loaded, a new one is missing).
+@Component
+public class PostSearchIndex {
+
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String CONTENT = "content";
+
+    // A match in the title counts more than one in the description, which counts more than one in the content
+    private static final Map<String, Float> FIELD_WEIGHTS = Map.of(TITLE, 3f, DESCRIPTION, 2f, CONTENT, 1f);
+
+    private final PostRepository postRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Analyzer analyzer = new EnglishAnalyzer();
+    private final IndexWriter indexWriter;
+    private final SearcherManager searcherManager;
+
+    // Searches are refused until the startup build has gone through the whole table
+    private volatile boolean ready;
+
+    // While rebuild() runs, the ids written by index()/remove() in the meantime. The rows rebuild() streams may be
+    // older than those writes (a post deleted after it was read would come back), so rebuild() leaves them alone.
+    // Every write to the index holds the lock, checking and writing a document can't interleave with a remove()
+    private final Object writeLock = new Object();
+    private final Set<Long> writtenDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+
+    public PostSearchIndex(PostRepository postRepository, EntityManager entityManager,
+                           PlatformTransactionManager transactionManager) throws IOException {
+        this.postRepository = postRepository;
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.indexWriter = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(analyzer));
+        this.searcherManager = new SearcherManager(indexWriter, null);
+    }
+
+    // Page of matching post ids, best match first. The caller keeps (pageNo + 1) * pageSize within an int
+    // (PostServiceImpl.searchPosts caps it at AppConstants.MAX_SEARCH_RESULTS). totalHits is null when Lucene stopped counting
+    // (it only counts exactly up to 1000 hits, which keeps large result sets cheap)
+    public record SearchResult(List<Long> postIds, Long totalHits, boolean last) {
+    }
+
+    public SearchResult search(String text, int pageNo, int pageSize) {
+        if (!ready) {
+            throw new BlogAPIException(HttpStatus.SERVICE_UNAVAILABLE, "The search index is still being built");
+        }
+
+        //1. SimpleQueryParser never fails on user input: "quoted phrases", -excluded, prefix* ... all terms must match
+        SimpleQueryParser parser = new SimpleQueryParser(analyzer, FIELD_WEIGHTS);
+        parser.setDefaultOperator(BooleanClause.Occur.MUST);
+        Query query = parser.parse(text);
+        if (query == null) {
+            // Only stop words or operators, nothing to search for
+            return new SearchResult(List.of(), 0L, true);
+        }
+
+        //2. Collect the hits up to the end of the requested page plus one, to know whether there is a next page
+        int from = pageNo * pageSize;
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs topDocs = searcher.search(query, from + pageSize + 1);
+                StoredFields storedFields = searcher.storedFields();
+                List<Long> postIds = new ArrayList<>(pageSize);
+                for (int i = from; i < Math.min(topDocs.scoreDocs.length, from + pageSize); i++) {
+                    ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+                    postIds.add(storedFields.document(scoreDoc.doc).getField(ID).numericValue().longValue());
+                }
+                Long totalHits = topDocs.totalHits.relation == TotalHits.Relation.EQUAL_TO ? topDocs.totalHits.value : null;
+                return new SearchResult(postIds, totalHits, topDocs.scoreDocs.length <= from + pageSize);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Adds the post, or replaces the older version of it
+    public void index(Post post) {
+        Document document = toDocument(post);
+        TransactionUtils.afterCommit(() -> {
+            try {
+                synchronized (writeLock) {
+                    markIfRebuilding(post.getId());
+                    indexWriter.updateDocument(new Term(ID, String.valueOf(post.getId())), document);
+                }
+                searcherManager.maybeRefreshBlocking();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public void remove(long postId) {
+        TransactionUtils.afterCommit(() -> {
+            try {
+                synchronized (writeLock) {
+                    markIfRebuilding(postId);
+                    indexWriter.deleteDocuments(new Term(ID, String.valueOf(postId)));
+                }
+                searcherManager.maybeRefreshBlocking();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Builds the index from scratch, streaming the posts table in one read-only transaction
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() throws IOException {
+        ready = false;
+        synchronized (writeLock) {
+            writtenDuringRebuild.clear();
+            rebuilding = true;
+            indexWriter.deleteAll();
+        }
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Post> posts = postRepository.streamAllBy()) {
+                    Iterator<Post> iterator = posts.iterator();
+                    while (iterator.hasNext()) {
+                        Post post = iterator.next();
+                        synchronized (writeLock) {
+                            if (!writtenDuringRebuild.contains(post.getId())) {
+                                indexWriter.updateDocument(new Term(ID, String.valueOf(post.getId())), toDocument(post));
+                            }
+                        }
+                        entityManager.detach(post);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            synchronized (writeLock) {
+                rebuilding = false;
+                writtenDuringRebuild.clear();
+            }
+        }
+        indexWriter.commit();
+        searcherManager.maybeRefreshBlocking();
+        ready = true;
+    }
+
+    // Must hold writeLock
+    private void markIfRebuilding(long postId) {
+        if (rebuilding) {
+            writtenDuringRebuild.add(postId);
+        }
+    }
+
+    private static Document toDocument(Post post) {
+        Document document = new Document();
+        // Indexed as a single term so updateDocument/deleteDocuments can find it, stored to map hits back to posts
+        document.add(new StringField(ID, String.valueOf(post.getId()), Field.Store.NO));
+        document.add(new StoredField(ID, post.getId()));
+        document.add(new TextField(TITLE, post.getTitle(), Field.Store.NO));
+        document.add(new TextField(DESCRIPTION, post.getDescription(), Field.Store.NO));
+        document.add(new TextField(CONTENT, post.getContent(), Field.Store.NO));
+        return document;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        indexWriter.close();
+        analyzer.close();
+    }
+}
@@ -1,6 +1,9 @@
 package com.springboot.blog.service;
 
+import com.springboot.blog.payload.CommentBatchResponse;
 import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.CommentResponse;
+import com.springboot.blog.payload.CommentSubmission;
 
 import java.util.List;
 
@@ -9,8 +12,9 @@ public interface CommentService {
     //1. Define the abstract method for creating a comment
     CommentDto createComment(long postId, CommentDto commentDto);
 
-    //2. Define abstract method for list of all comments for a specific post
-    List<CommentDto> getCommentsByPostId(long postId);
+    //2. Define abstract method for one page of the comments of a specific post, ordered by comment id.
+    // When cursor is given (the nextCursor of a previous page) it is used instead of pageNo
+    CommentResponse getCommentsByPostId(long postId, int pageNo, int pageSize, String cursor);
 
     //3. Define abstract method to get comment by postId if it belongs to that post
     CommentDto getCommentById(long postId, long commentId);
@@ -21,5 +25,18 @@ public interface CommentService {
     //5. Define an abstract method to delete the comment by postId if it belongs to that post
     void deleteCommentById(long postId, long commentId);
 
+    //6. Define an abstract method to create many comments for one post in JDBC batches, returns the new ids in order
+    List<Long> createComments(long postId, List<CommentDto> commentDtos);
+
+    //7. Define an abstract method to queue a comment for the background writer, returns right away with a tracking id
+    CommentSubmission submitComment(long postId, CommentDto commentDto);
+
+    //8. Define an abstract method to look up the status of a queued comment
+    CommentSubmission getSubmission(String trackingId);
+
+    //9. Define an abstract method to get the first comments of several posts at once, missing posts are reported
+    // in the response instead of failing the whole batch
+    CommentBatchResponse getCommentsByPostIds(List<Long> postIds, int limit);
+
 
 }
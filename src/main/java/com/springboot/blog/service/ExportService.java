@@ -0,0 +1,15 @@
+package com.springboot.blog.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ExportService {
+
+    /**
+     * Writes every post followed by every comment to the stream as newline-delimited JSON.
+     * Rows are streamed from the database so memory use does not depend on the size of the tables.
+     *
+     * @param outputStream where the NDJSON lines are written, it is flushed but not closed
+     */
+    void exportPostsAndComments(OutputStream outputStream) throws IOException;
+}
@@ -1,7 +1,10 @@
 package com.springboot.blog.service;
 
+import com.springboot.blog.payload.PostBatchResponse;
+import com.springboot.blog.payload.PostCursorResponse;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostWithComments;
 
 import java.util.List;
 
@@ -27,9 +30,40 @@ public interface PostService {
      *
      * @param pageNo the page number to retrieve (starts from 0 or 1 depending on implementation)
      * @param pageSize the number of records per page
+     * @param countMode exact runs a COUNT query, cached reads the total from an in-memory counter
+     *                  and none leaves totalElements/totalPages out
+     * @param view summary (id, title, description, commentCount) or full
+     * @param fields optional comma separated list of fields, takes precedence over view
      * @return a PostResponse object that contains the list of PostDto and pagination details
      */
-    PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir);
+    PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir, String countMode, String view, String fields);
+
+    /**
+     * Retrieves a page of blog posts using keyset (cursor) pagination.
+     * Unlike {@link #getAllPosts(int, int, String, String, String, String, String)} the cost of a page does not grow with how deep the client is.
+     *
+     * @param cursor the nextCursor of the previous page, or an empty value for the first page
+     * @param pageSize the number of records per page, between 1 and AppConstants.MAX_CURSOR_PAGE_SIZE
+     * @param sortBy id, title or description, the id is always added as a tie-breaker
+     * @param sortDir asc or desc
+     * @param view summary (id, title, description, commentCount) or full
+     * @param fields optional comma separated list of fields, takes precedence over view
+     * @return a PostCursorResponse object with the posts and the cursor of the next page
+     */
+    PostCursorResponse getAllPostsByCursor(String cursor, int pageSize, String sortBy, String sortDir, String view, String fields);
+
+    /**
+     * Full-text search over the title, description and content of the posts, best matches first.
+     *
+     * @param query the words to search for, supports "phrases", -exclusions and prefix*
+     * @param pageNo the page number to retrieve, starting from 0
+     * @param pageSize the number of records per page, at most 100
+     * @param view summary (id, title, description, commentCount) or full
+     * @param fields optional comma separated list of fields, takes precedence over view
+     * @return a PostResponse with the matching posts, totalElements is left out for very large result sets
+     * @throws com.springboot.blog.exception.BlogAPIException 400 when the page ends past the first 1000 results
+     */
+    PostResponse searchPosts(String query, int pageNo, int pageSize, String view, String fields);
 
     /**
      * Retrieves a single blog post by its unique ID.
@@ -39,14 +73,42 @@ public interface PostService {
      */
     PostDto getPostById(Long id);
 
+    /**
+     * Retrieves a single blog post together with its first comments, for rendering a post page in one call.
+     *
+     * @param id the ID of the post to retrieve
+     * @param commentLimit how many comments (ordered by id) to include, capped like a page of comments
+     * @return the post and its first comments
+     */
+    PostWithComments getPostWithComments(Long id, int commentLimit);
+
+    /**
+     * Retrieves several blog posts at once, e.g. for a "related posts" widget.
+     * Ids that don't match a post are reported in the response instead of failing the whole batch.
+     *
+     * @param ids the IDs of the posts, at most AppConstants.MAX_BATCH_IDS distinct ones
+     * @return the found posts in the order of the requested ids, and the ids that were not found
+     */
+    PostBatchResponse getPostsByIds(List<Long> ids);
+
+    /**
+     * Returns the current version of a blog post without loading its content.
+     * Used to answer conditional requests (If-None-Match) cheaply.
+     *
+     * @param id the ID of the post
+     * @return the version of the post
+     */
+    long getPostVersion(Long id);
+
     /**
      * Updates an existing blog post with new data.
      *
      * @param postDto the new post data to be updated
      * @param id the ID of the post to update
+     * @param expectedVersion the version the client based its changes on (from If-Match), or null to skip the check
      * @return the updated PostDto object
      */
-    PostDto updatePost(PostDto postDto, Long id);
+    PostDto updatePost(PostDto postDto, Long id, Long expectedVersion);
 
     /**
      * Deletes a blog post by its ID.
@@ -54,4 +116,13 @@ public interface PostService {
      * @param id the ID of the post to delete
      */
     void deletePostById(Long id);
+
+    /**
+     * Deletes a blog post with a very large number of comments in the background.
+     * The comments are removed in small batches, each in its own transaction, and the post itself last.
+     * Until then the post stays readable. Asking again while the delete is running has no effect.
+     *
+     * @param id the ID of the post to delete
+     */
+    void deletePostByIdInBackground(Long id);
 }
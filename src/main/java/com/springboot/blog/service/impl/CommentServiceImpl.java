@@ -1,19 +1,39 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.CommentCountBuffer;
 import com.springboot.blog.entity.Comment;
 import com.springboot.blog.entity.Post;
 import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.payload.CommentBatchResponse;
 import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.CommentResponse;
+import com.springboot.blog.payload.CommentSubmission;
+import com.springboot.blog.queue.CommentWriteQueue;
 import com.springboot.blog.repository.CommentRepository;
 import com.springboot.blog.repository.PostRepository;
 import com.springboot.blog.service.CommentService;
+import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.CursorUtils;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 
 @Service
@@ -25,19 +45,36 @@ public class CommentServiceImpl  implements CommentService {
     // Inject Post Repository
     private PostRepository postRepository;
 
+    // Used by the batch insert to clear the persistence context between JDBC batches
+    private final EntityManager entityManager;
 
+    // Number of comments flushed together, same as hibernate.jdbc.batch_size
+    private final int jdbcBatchSize;
 
+    // Keeps posts.comment_count up to date
+    private final CommentCountBuffer commentCountBuffer;
 
-    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository) {
+    // Background writer for ?async=true comments
+    private final CommentWriteQueue commentWriteQueue;
+
+
+    public CommentServiceImpl(CommentRepository commentRepository, PostRepository postRepository, EntityManager entityManager,
+                              @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int jdbcBatchSize,
+                              CommentCountBuffer commentCountBuffer, CommentWriteQueue commentWriteQueue) {
         this.commentRepository = commentRepository;
         this.postRepository = postRepository;
+        this.entityManager = entityManager;
+        this.jdbcBatchSize = jdbcBatchSize;
+        this.commentCountBuffer = commentCountBuffer;
+        this.commentWriteQueue = commentWriteQueue;
     }
 
 
     @Override
+    @Transactional
     public CommentDto createComment(long postId, CommentDto commentDto) {
 
-        Comment comment = mapToCommentEntity(commentDto);
+        Comment comment = CommentMapper.mapToCommentEntity(commentDto);
 
         //1. Retrieve post entity by id
         Post post = postRepository.findById(postId).orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
@@ -47,104 +84,211 @@ public class CommentServiceImpl  implements CommentService {
 
         //3. Save Comment Entity to the DB
         Comment newComment = commentRepository.save(comment);
+        commentCountBuffer.increment(postId);
 
-        return mapToCommentDto(newComment);
+        return CommentMapper.mapToCommentDto(newComment);
 
     }
 
     @Override
-    public List<CommentDto> getCommentsByPostId(long postId) {
-        List<Comment> comments = commentRepository.findByPostId(postId);
-        // Now convert the list of comments into list of comment dto's
-        return comments.stream().map(this::mapToCommentDto).collect(Collectors.toList()); //used method reference for lambda method
-    }
+    @Transactional
+    public List<Long> createComments(long postId, List<CommentDto> commentDtos) {
 
-    @Override
-    public CommentDto getCommentById(long postId, long commentId) {
+        if (commentDtos.size() > AppConstants.MAX_COMMENT_BATCH_SIZE) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "A batch can contain at most " + AppConstants.MAX_COMMENT_BATCH_SIZE + " comments");
+        }
 
-        //1. Retrieve the posts by the postId
+        //1. Retrieve post entity by id, only once for the whole batch
         Post post = postRepository.findById(postId).orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
 
-        //2. Retrieve the comment with the comment id provided by the url template
-        Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
-
-        //3. Custom Exception check exception class
-        if(!comment.getPost().getId().equals(post.getId())){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
+        //2. Persist the comments, every jdbcBatchSize comments flush them as one JDBC batch and clear the persistence
+        // context so a batch of thousands doesn't keep every entity (and its dirty-checking snapshot) in memory
+        List<Long> ids = new ArrayList<>(commentDtos.size());
+        List<Comment> chunk = new ArrayList<>(jdbcBatchSize);
+        for (CommentDto commentDto : commentDtos) {
+            Comment comment = CommentMapper.mapToCommentEntity(commentDto);
+            comment.setId(0);   // always a new comment, the id comes from the sequence
+            comment.setPost(post);
+            chunk.add(comment);
+            if (chunk.size() == jdbcBatchSize) {
+                flushBatch(chunk, ids);
+            }
         }
+        flushBatch(chunk, ids);
+
+        // Counted once the transaction commits
+        commentCountBuffer.add(postId, ids.size());
 
-        //4. Finally return comment dto object
-        return mapToCommentDto(comment);
+        return ids;
     }
 
     @Override
-    public CommentDto updateCommentById(long postId, long commentId, CommentDto commentRequest) {
+    public CommentSubmission submitComment(long postId, CommentDto commentDto) {
+        // No database access here, the post is checked by the writer (the submission then ends up FAILED)
+        return commentWriteQueue.submit(postId, commentDto);
+    }
 
-        //1. Retrieve the posts by the postId
-        Post post = postRepository.findById(postId).orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
+    @Override
+    public CommentSubmission getSubmission(String trackingId) {
+        return commentWriteQueue.getSubmission(trackingId);
+    }
+
+    private void flushBatch(List<Comment> chunk, List<Long> ids) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        commentRepository.saveAll(chunk);
+        commentRepository.flush();
+        chunk.forEach(comment -> ids.add(comment.getId()));
+        entityManager.clear();
+        chunk.clear();
+    }
 
-        //2. Retrieve the comment with the comment id provided by the url template
-        Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
+    @Override
+    @Transactional(readOnly = true)
+    public CommentResponse getCommentsByPostId(long postId, int pageNo, int pageSize, String cursor) {
 
-        //3. Custom Exception check exception class
-        // Here we are checking whether a comment belong to particular post or not
-        if(!comment.getPost().getId().equals(post.getId())){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
+        //1. Never load more than MAX_COMMENT_PAGE_SIZE comments in one go
+        int size = Math.max(1, Math.min(pageSize, AppConstants.MAX_COMMENT_PAGE_SIZE));
+        if (pageNo < 0) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "pageNo must be >= 0");
         }
 
-        //4. Finally if no exceptions occur go ahead and update the comment
-        // here I tried constructor instead of using the setter methods of comment fields but it didn't work
-        // Comment newComment = new Comment(comment.getName(), comment.getEmail(), comment.getBody());
-        comment.setName(commentRequest.getName());
-        comment.setEmail(commentRequest.getEmail());
-        comment.setBody(commentRequest.getBody());
+        List<Comment> comments;
+        boolean last;
+        Integer page = null;
+        if (cursor == null || cursor.isBlank()) {
+            //2a. Page mode, Slice avoids the COUNT query
+            Slice<Comment> slice = commentRepository.findByPostId(postId, PageRequest.of(pageNo, size, Sort.by("id")));
+            comments = slice.getContent();
+            last = slice.isLast();
+            page = pageNo;
+        } else {
+            //2b. Keyset mode, read one row more than needed to know whether this is the last page
+            comments = commentRepository.findByPostIdAndIdGreaterThanOrderByIdAsc(postId, decodeCursor(cursor), Limit.of(size + 1));
+            last = comments.size() <= size;
+            if (!last) {
+                comments = comments.subList(0, size);
+            }
+        }
+
+        // Now convert the list of comments into list of comment dto's
+        List<CommentDto> content = CommentMapper.mapToCommentDtos(comments);
 
-        //5. Write this to DB
-        Comment updatedComment = commentRepository.save(comment);
+        //3. The cursor of the next page is simply the id of the last comment we return
+        String nextCursor = last || content.isEmpty() ? null : CursorUtils.encode(Map.of("id", content.get(content.size() - 1).getId()));
 
-        //6. Return Comment dto to the client as response
-        return mapToCommentDto(updatedComment);
+        return new CommentResponse(content, page, size, nextCursor, last);
     }
 
+    // Multi-get for GET /api/comments?postIds=...: one windowed query returns the first comments of every post,
+    // the posts are only looked up when some of them came back without comments
     @Override
-    public void deleteCommentById(long postId, long commentId) {
-        //1. Retrieve the posts by the postId
-        Post post = postRepository.findById(postId).orElseThrow(() -> new ResourceNotFoundException("Post", "id", postId));
+    @Transactional(readOnly = true)
+    public CommentBatchResponse getCommentsByPostIds(List<Long> postIds, int limit) {
 
-        //2. Retrieve the comment with the comment id provided by the url template
-        Comment comment = commentRepository.findById(commentId).orElseThrow(() -> new ResourceNotFoundException("Comment", "id", commentId));
+        //1. Bounded batch, same per-post cap as a page of comments
+        Set<Long> requested = new LinkedHashSet<>(postIds);
+        if (requested.size() > AppConstants.MAX_BATCH_IDS) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "At most " + AppConstants.MAX_BATCH_IDS + " post ids can be requested at once");
+        }
+        int perPost = Math.max(1, Math.min(limit, AppConstants.MAX_COMMENT_PAGE_SIZE));
+
+        //2. Every post gets its (possibly empty) list, in the requested order
+        Map<Long, List<CommentDto>> comments = new LinkedHashMap<>();
+        requested.forEach(postId -> comments.put(postId, new ArrayList<>()));
+        if (requested.isEmpty()) {
+            return new CommentBatchResponse(comments, List.of());
+        }
+        // getPost().getId() is read from the uninitialized proxy, the posts themselves are not loaded
+        for (Comment comment : commentRepository.findFirstByPostIdIn(requested, perPost)) {
+            comments.get(comment.getPost().getId()).add(CommentMapper.mapToCommentDto(comment));
+        }
+
+        //3. A post with comments obviously exists, only the others need checking
+        List<Long> withoutComments = new ArrayList<>();
+        comments.forEach((postId, list) -> {
+            if (list.isEmpty()) {
+                withoutComments.add(postId);
+            }
+        });
+        List<Long> missingPostIds = new ArrayList<>();
+        if (!withoutComments.isEmpty()) {
+            Set<Long> existing = new HashSet<>(postRepository.findExistingIds(withoutComments));
+            for (Long postId : withoutComments) {
+                if (!existing.contains(postId)) {
+                    comments.remove(postId);
+                    missingPostIds.add(postId);
+                }
+            }
+        }
+        return new CommentBatchResponse(comments, missingPostIds);
+    }
 
-        //3. Custom Exception check exception class
-        // Here we are checking whether a comment belong to particular post or not
-        if(!comment.getPost().getId().equals(post.getId())){
-            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
+    private long decodeCursor(String cursor) {
+        if (!(CursorUtils.decode(cursor).get("id") instanceof Number id)) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Invalid cursor");
         }
+        return id.longValue();
+    }
 
-        //4. If No exceptions occur go ahead and delete that comment
-        commentRepository.delete(comment);
+    @Override
+    @Transactional(readOnly = true)
+    public CommentDto getCommentById(long postId, long commentId) {
 
+        //1. Retrieve the comment only if it belongs to the post, this is a single select
+        Comment comment = commentRepository.findByIdAndPostId(commentId, postId)
+                .orElseThrow(() -> commentNotFoundOrNotOwned(postId, commentId));
 
+        //2. Finally return comment dto object
+        return CommentMapper.mapToCommentDto(comment);
     }
 
-    // Create the Comment Entity to Comment Dto
-    private CommentDto mapToCommentDto(Comment comment) {
-        CommentDto commentDto = new CommentDto();
-        commentDto.setId(comment.getId());
-        commentDto.setName(comment.getName());
-        commentDto.setEmail(comment.getEmail());
-        commentDto.setBody(comment.getBody());
+    @Override
+    @Transactional
+    public CommentDto updateCommentById(long postId, long commentId, CommentDto commentRequest) {
 
-        return commentDto;
+        //1. Update the comment in one statement, the WHERE clause also checks that it belongs to the post
+        int updated = commentRepository.updateByIdAndPostId(commentId, postId,
+                commentRequest.getName(), commentRequest.getEmail(), commentRequest.getBody());
+
+        //2. Nothing updated means either the post/comment doesn't exist or the comment belongs to another post
+        if (updated == 0) {
+            throw commentNotFoundOrNotOwned(postId, commentId);
+        }
+
+        //3. Return Comment dto to the client as response, these are exactly the values we just wrote
+        CommentDto updatedComment = new CommentDto();
+        updatedComment.setId(commentId);
+        updatedComment.setName(commentRequest.getName());
+        updatedComment.setEmail(commentRequest.getEmail());
+        updatedComment.setBody(commentRequest.getBody());
+        return updatedComment;
     }
 
-    // Similarly create Comment DTO to Comment Entity
-    private Comment mapToCommentEntity(CommentDto commentDto) {
-        Comment comment = new Comment();
-        comment.setId(commentDto.getId());
-        comment.setName(commentDto.getName());
-        comment.setEmail(commentDto.getEmail());
-        comment.setBody(commentDto.getBody());
+    @Override
+    @Transactional
+    public void deleteCommentById(long postId, long commentId) {
+
+        //1. Delete the comment in one statement, the WHERE clause also checks that it belongs to the post
+        int deleted = commentRepository.deleteByIdAndPostId(commentId, postId);
 
-        return comment;
+        //2. Nothing deleted means either the post/comment doesn't exist or the comment belongs to another post
+        if (deleted == 0) {
+            throw commentNotFoundOrNotOwned(postId, commentId);
+        }
+        commentCountBuffer.decrement(postId);
+    }
+
+    // Only called when the single statement above matched no row, so the extra lookups are off the common path.
+    // Keeps the same errors as before: 404 for a missing post or comment, 400 when the comment is on another post
+    private RuntimeException commentNotFoundOrNotOwned(long postId, long commentId) {
+        if (!postRepository.existsById(postId)) {
+            return new ResourceNotFoundException("Post", "id", postId);
+        }
+        if (!commentRepository.existsById(commentId)) {
+            return new ResourceNotFoundException("Comment", "id", commentId);
+        }
+        return new BlogAPIException(HttpStatus.BAD_REQUEST, "Comment does not belong to post");
     }
 }
@@ -0,0 +1,85 @@
+package com.springboot.blog.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.mapper.PostMapper;
+import com.springboot.blog.payload.ExportRecord;
+import com.springboot.blog.repository.CommentRepository;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.ExportService;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    public ExportServiceImpl(PostRepository postRepository, CommentRepository commentRepository,
+                             EntityManager entityManager, ObjectMapper objectMapper) {
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+    }
+
+    // One read-only transaction for the whole export: the streams need an open connection, and REPEATABLE READ makes
+    // both queries read the same snapshot (with the default READ COMMITTED each statement takes its own, so the
+    // comments could include those of a post created after the posts were read)
+    @Override
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void exportPostsAndComments(OutputStream outputStream) throws IOException {
+
+        //1. One JSON document per line, the generator must not close the response stream when we are done
+        try (SequenceWriter writer = objectMapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(outputStream)) {
+
+            long records = 0;
+
+            //2. Posts first, each entity is detached once written so the persistence context stays empty
+            try (Stream<Post> posts = postRepository.streamAllBy()) {
+                Iterator<Post> iterator = posts.iterator();
+                while (iterator.hasNext()) {
+                    Post post = iterator.next();
+                    writer.write(ExportRecord.ofPost(PostMapper.mapToPostDto(post)));
+                    entityManager.detach(post);
+                    records++;
+                }
+            }
+
+            //3. Then the comments, getPost().getId() reads the foreign key without loading the post
+            try (Stream<Comment> comments = commentRepository.streamAllBy()) {
+                Iterator<Comment> iterator = comments.iterator();
+                while (iterator.hasNext()) {
+                    Comment comment = iterator.next();
+                    writer.write(ExportRecord.ofComment(comment.getPost().getId(), CommentMapper.mapToCommentDto(comment)));
+                    entityManager.detach(comment);
+                    records++;
+                }
+            }
+
+            // The separator is only written between records, the last one also needs its line terminator
+            writer.flush();
+            if (records > 0) {
+                outputStream.write('\n');
+            }
+            outputStream.flush();
+        }
+    }
+}
@@ -1,19 +1,56 @@
 package com.springboot.blog.service.impl;
 
+import com.springboot.blog.cache.CommentCountBuffer;
+import com.springboot.blog.cache.PostCountCache;
+import com.springboot.blog.cache.PostPageCache;
+import com.springboot.blog.config.ReadWriteRoutingDataSource;
+import com.springboot.blog.entity.Comment;
 import com.springboot.blog.entity.Post;
+import com.springboot.blog.exception.BlogAPIException;
 import com.springboot.blog.exception.ResourceNotFoundException;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.mapper.PostMapper;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PartialPostDto;
+import com.springboot.blog.payload.PostBatchResponse;
+import com.springboot.blog.payload.PostCursorResponse;
 import com.springboot.blog.payload.PostDto;
 import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.payload.PostWithComments;
+import com.springboot.blog.queue.PostDeleteQueue;
+import com.springboot.blog.repository.CommentRepository;
 import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.repository.PostSummary;
+import com.springboot.blog.search.PostSearchIndex;
 import com.springboot.blog.service.PostService;
-import org.springframework.beans.BeanUtils;
+import com.springboot.blog.utils.AppConstants;
+import com.springboot.blog.utils.CursorUtils;
+import com.springboot.blog.utils.TransactionUtils;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 // Implements the PostService interface and contains the business logic for Post operations
@@ -22,17 +59,60 @@ import java.util.stream.Collectors;
 @Service
 public class PostServiceImpl implements PostService {
 
+    // Columns a client may sort by in cursor mode. Each of them is non-null and backed by an index together with id.
+    private static final Set<String> CURSOR_SORT_COLUMNS = Set.of("id", "title", "description");
+
+    // Fields a client can ask for with fields=, and the ones returned by view=summary
+    private static final Set<String> POST_FIELDS = Set.of("id", "title", "description", "content", "commentCount");
+    private static final Set<String> SUMMARY_FIELDS = Set.of("id", "title", "description", "commentCount");
+
+    // Extra keys stored in the cursor so a token can't be replayed against a different sort order
+    private static final String CURSOR_SORT_BY = "_sortBy";
+    private static final String CURSOR_SORT_DIR = "_sortDir";
+
     // 2). Since we also need PostRepository methods so we use constructor based dependency injection here.
     private final PostRepository postRepository;
 
+    // Only used to delete the comments of a post without loading them
+    private final CommentRepository commentRepository;
+
+    // In-memory total used by the "cached" count mode of getAllPosts
+    private final PostCountCache postCountCache;
+
+    // The "posts" cache, read directly by getPostsByIds
+    private final Cache postCache;
+
+    // Pending comment count changes, dropped when the post is deleted
+    private final CommentCountBuffer commentCountBuffer;
+
+    // Full-text index, updated on every create/update/delete
+    private final PostSearchIndex postSearchIndex;
+
+    // Serialized listing pages, dropped on every create/update/delete
+    private final PostPageCache postPageCache;
+
+    // Chunked background deletes of posts with many comments
+    private final PostDeleteQueue postDeleteQueue;
+
     // Since we only have one constructor we can skip adding @Autowired annotation for spring 4.3 or later versions.
-    public PostServiceImpl(PostRepository postRepository) {
+    public PostServiceImpl(PostRepository postRepository, CommentRepository commentRepository,
+                           PostCountCache postCountCache, CacheManager cacheManager,
+                           CommentCountBuffer commentCountBuffer, PostSearchIndex postSearchIndex,
+                           PostPageCache postPageCache, PostDeleteQueue postDeleteQueue) {
         this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.postCountCache = postCountCache;
+        this.postCache = cacheManager.getCache(AppConstants.POST_CACHE);
+        this.commentCountBuffer = commentCountBuffer;
+        this.postSearchIndex = postSearchIndex;
+        this.postPageCache = postPageCache;
+        this.postDeleteQueue = postDeleteQueue;
     }
 
     // 1). This is for CreatePost Endpoint
     // Since we are implementing PostService we have to Override the methods from there and implement them here.
     @Override
+    @Transactional
     public PostDto createPost(PostDto postDto) {
 
         //        // Convert DTO to entity
@@ -43,8 +123,8 @@ public class PostServiceImpl implements PostService {
         //        post.setDescription(postDto.getDescription());
         //        post.setContent(postDto.getContent());
 
-        // USE CUSTOM METHOD DEFINED IN THIS CLASS
-        Post post = mapToPostEntity(postDto);
+        // USE THE MAPPER CLASS
+        Post post = PostMapper.mapToPostEntity(postDto);
 
         // Step2: We will call the repository object to save this entity into the database
         Post newPost = postRepository.save(post);   // Here we saved the above created `post` object into the database.
@@ -62,14 +142,26 @@ public class PostServiceImpl implements PostService {
         //        return postResponse;
         //    }
 
-        // USE CUSTOM METHOD DEFINED IN THIS CLASS for converting post entity to post DTO
-        PostDto postResponse = mapToPostDto(newPost);
+        // USE THE MAPPER CLASS for converting post entity to post DTO
+        PostDto postResponse = PostMapper.mapToPostDto(newPost);
+        // Like the delete, nothing in memory changes until the row is committed
+        TransactionUtils.afterCommit(() -> {
+            postCountCache.increment();
+            postPageCache.invalidate();
+        });
+        postSearchIndex.index(newPost);
         return postResponse;
     }
 
     // 2). This is for getAllPosts() Endpoint
     @Override
-    public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir) {
+    @Transactional(readOnly = true)
+    public PostResponse getAllPosts(int pageNo, int pageSize, String sortBy, String sortDir, String countMode,
+                                    String view, String fields) {
+
+        // Which columns to read, a summary never pulls the content body out of the database
+        Set<String> selectedFields = resolveFields(view, fields);
+        Class<?> projection = projectionFor(selectedFields);
 
         // For sort direction
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
@@ -77,55 +169,295 @@ public class PostServiceImpl implements PostService {
         //1. To enable pagination create Pageable instance
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
 
+        // count=none and count=cached read a Slice, which skips the COUNT query and fetches one extra row for `last`
+        if (!countMode.equalsIgnoreCase(AppConstants.DEFAULT_COUNT_MODE)) {
+            return getAllPostsWithoutCount(pageable, countMode, projection, selectedFields);
+        }
+
         //2. Update the findAll Method for pagination
 //        List<Post> posts = postRepository.findAll();
-        Page<Post> posts = postRepository.findAll(pageable);    // The return type is Page for pagination so changed from List to Page
+        Page<?> posts = postRepository.findPageBy(pageable, projection);    // The return type is Page for pagination so changed from List to Page
+
+        //3. convert the page into the PostResponse with the content and the pagination details
+        return PostMapper.mapToPostResponse(posts, post -> mapRowToPostDto(post, selectedFields));
+    }
+
+    private PostResponse getAllPostsWithoutCount(Pageable pageable, String countMode, Class<?> projection, Set<String> selectedFields) {
+        boolean cached = countMode.equalsIgnoreCase("cached");
+        if (!cached && !countMode.equalsIgnoreCase("none")) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "count must be one of exact, cached or none");
+        }
 
-        //3. get content for the page object
-        List<Post> listOfPosts = posts.getContent();
+        Slice<?> posts = postRepository.findSliceBy(pageable, projection);
+        PostResponse postResponse = PostMapper.mapToPostResponse(posts, post -> mapRowToPostDto(post, selectedFields));
 
-        List<PostDto> content =  listOfPosts.stream().map(post -> mapToPostDto(post)).collect(Collectors.toList());
+        // The counter can be slightly behind between two reconciliations, that is fine for display purposes
+        if (cached) {
+            long totalElements = postCountCache.get();
+            postResponse.setTotalElements(totalElements);
+            postResponse.setTotalPages((int) ((totalElements + pageable.getPageSize() - 1) / pageable.getPageSize()));
+        }
+        return postResponse;
+    }
+
+    // 2.1). This is for getAllPosts() Endpoint in cursor mode
+    @Override
+    @Transactional(readOnly = true)
+    public PostCursorResponse getAllPostsByCursor(String cursor, int pageSize, String sortBy, String sortDir,
+                                                  String view, String fields) {
+
+        if (!CURSOR_SORT_COLUMNS.contains(sortBy)) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Cursor pagination is not supported for sortBy " + sortBy);
+        }
+        // Same clamping as the comment pages, a window is read in one query
+        int size = Math.max(1, Math.min(pageSize, AppConstants.MAX_CURSOR_PAGE_SIZE));
+        Set<String> selectedFields = resolveFields(view, fields);
+        Sort.Direction direction = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+        //1. Always add the id as a tie-breaker so the order is total and no row is skipped or repeated
+        Sort sort = Sort.by(direction, sortBy);
+        if (!sortBy.equals("id")) {
+            sort = sort.and(Sort.by(direction, "id"));
+        }
+
+        //2. An empty cursor means the first page, otherwise continue right after the keys of the last row
+        KeysetScrollPosition position = (cursor == null || cursor.isBlank())
+                ? ScrollPosition.keyset()
+                : ScrollPosition.forward(decodeCursor(cursor, sortBy, direction));
+
+        Window<?> window = postRepository.findBy(position, sort, Limit.of(size), projectionFor(selectedFields));
 
+        List<PostDto> content = PostMapper.mapToPostDtos(window.getContent(), post -> mapRowToPostDto(post, selectedFields));
+
+        //3. Build the token for the next page out of the keys of the last row we return
+        String nextCursor = null;
+        if (window.hasNext() && !window.isEmpty()) {
+            KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+            Map<String, Object> keys = new LinkedHashMap<>(last.getKeys());
+            keys.put(CURSOR_SORT_BY, sortBy);
+            keys.put(CURSOR_SORT_DIR, direction.name());
+            nextCursor = CursorUtils.encode(keys);
+        }
+
+        return new PostCursorResponse(content, size, nextCursor, nextCursor == null);
+    }
+
+    // Reads the keys back from the token and makes sure it was produced for the same sort order
+    private Map<String, Object> decodeCursor(String cursor, String sortBy, Sort.Direction direction) {
+        Map<String, Object> keys = CursorUtils.decode(cursor);
+        if (!sortBy.equals(keys.remove(CURSOR_SORT_BY)) || !direction.name().equals(keys.remove(CURSOR_SORT_DIR))
+                || !(keys.get("id") instanceof Number id) || !keys.containsKey(sortBy) || keys.size() != (sortBy.equals("id") ? 1 : 2)) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "Cursor does not match the requested sort order");
+        }
+        // JSON gives us back an Integer for small ids, the entity attribute is a Long
+        keys.put("id", id.longValue());
+        return keys;
+    }
+
+    // 2.2). This is for the search Endpoint
+    @Override
+    @Transactional(readOnly = true)
+    public PostResponse searchPosts(String query, int pageNo, int pageSize, String view, String fields) {
+        if (query == null || query.isBlank()) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "q must not be empty");
+        }
+        if (pageNo < 0 || pageSize < 1 || pageSize > AppConstants.MAX_SEARCH_PAGE_SIZE) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "pageNo must be >= 0 and pageSize between 1 and " + AppConstants.MAX_SEARCH_PAGE_SIZE);
+        }
+        // long: pageNo * pageSize overflows an int long before it gets rejected here
+        if ((pageNo + 1L) * pageSize > AppConstants.MAX_SEARCH_RESULTS) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST,
+                    "Search results only go " + AppConstants.MAX_SEARCH_RESULTS + " posts deep, refine the query");
+        }
+        Set<String> selectedFields = resolveFields(view, fields);
+
+        //1. Ask the index for the ids of this page, already ranked by relevance
+        PostSearchIndex.SearchResult result = postSearchIndex.search(query, pageNo, pageSize);
+
+        //2. Load those posts in one query (the summary projection unless the content was asked for)
+        List<?> rows = result.postIds().isEmpty()
+                ? List.of()
+                : postRepository.findByIdIn(result.postIds(), projectionFor(selectedFields));
+        Map<Long, PostDto> postsById = new HashMap<>();
+        for (Object row : rows) {
+            Long id = row instanceof Post post ? post.getId() : ((PostSummary) row).getId();
+            postsById.put(id, mapRowToPostDto(row, selectedFields));
+        }
+
+        //3. Put them back in ranking order, skipping a post that was deleted in the meantime
+        List<PostDto> content = new ArrayList<>(result.postIds().size());
+        for (Long id : result.postIds()) {
+            PostDto postDto = postsById.get(id);
+            if (postDto != null) {
+                content.add(postDto);
+            }
+        }
 
         PostResponse postResponse = new PostResponse();
         postResponse.setContent(content);
-        postResponse.setPageNo(posts.getNumber());
-        postResponse.setPageSize(posts.getSize());
-        postResponse.setTotalElements(posts.getTotalElements());
-        postResponse.setTotalPages(posts.getTotalPages());
-        postResponse.setLast(posts.isLast());
-        postResponse.setFirst(posts.isFirst());
-
+        postResponse.setPageNo(pageNo);
+        postResponse.setPageSize(pageSize);
+        postResponse.setLast(result.last());
+        postResponse.setFirst(pageNo == 0);
+        if (result.totalHits() != null) {
+            postResponse.setTotalElements(result.totalHits());
+            postResponse.setTotalPages((int) ((result.totalHits() + pageSize - 1) / pageSize));
+        }
         return postResponse;
     }
 
-    // Convert Entity into a DTO is reused here. so create a common private method
-    private PostDto mapToPostDto(Post post) {
-        PostDto postDto = new PostDto();
-        BeanUtils.copyProperties(post, postDto);
-        return postDto;
+    // Works out which fields the client wants: fields= wins over view=, and view is either summary or full
+    private Set<String> resolveFields(String view, String fields) {
+        if (fields != null && !fields.isBlank()) {
+            Set<String> requested = Arrays.stream(fields.split(","))
+                    .map(String::trim)
+                    .filter(field -> !field.isEmpty())
+                    .collect(Collectors.toSet());
+            if (!POST_FIELDS.containsAll(requested)) {
+                throw new BlogAPIException(HttpStatus.BAD_REQUEST, "fields can only contain " + String.join(", ", POST_FIELDS));
+            }
+            return requested;
+        }
+        if (view.equalsIgnoreCase("summary")) {
+            return SUMMARY_FIELDS;
+        }
+        if (view.equalsIgnoreCase("full")) {
+            return POST_FIELDS;
+        }
+        throw new BlogAPIException(HttpStatus.BAD_REQUEST, "view must be summary or full");
     }
 
-    // Convert DTO into Entity is reused here. So create a common private method for that as well
-    private Post mapToPostEntity(PostDto postDto) {
-        Post post = new Post();
-        BeanUtils.copyProperties(postDto, post);
-        return post;
+    // Only load the whole entity when the content column was asked for, otherwise the summary projection is enough
+    private Class<?> projectionFor(Set<String> selectedFields) {
+        return selectedFields.contains("content") ? Post.class : PostSummary.class;
+    }
+
+    // Maps a listing row (entity or summary projection). Unless every field was selected, only the ones the client
+    // asked for are copied into a PartialPostDto, which leaves the others out of the JSON
+    private PostDto mapRowToPostDto(Object row, Set<String> selectedFields) {
+        PostDto postDto = row instanceof Post post ? PostMapper.mapToPostDto(post) : PostMapper.mapToPostDto((PostSummary) row);
+        if (selectedFields.equals(POST_FIELDS)) {
+            return postDto;
+        }
+        PostDto partial = new PartialPostDto();
+        if (selectedFields.contains("id")) {
+            partial.setId(postDto.getId());
+        }
+        if (selectedFields.contains("title")) {
+            partial.setTitle(postDto.getTitle());
+        }
+        if (selectedFields.contains("description")) {
+            partial.setDescription(postDto.getDescription());
+        }
+        if (selectedFields.contains("content")) {
+            partial.setContent(postDto.getContent());
+        }
+        if (selectedFields.contains("commentCount")) {
+            partial.setCommentCount(postDto.getCommentCount());
+        }
+        return partial;
     }
 
     // 3). This is for getPostById() Endpoint
+    // Served from the "posts" cache when possible. sync = true makes concurrent misses for the same id wait for
+    // a single database load instead of all of them hitting PostgreSQL.
+    // The cache is loaded from the primary: a replica still behind would put the version a write just evicted back in.
+    // It is per instance, the others keep serving an updated post until it expires (5s, spring.cache.caffeine.spec)
     @Override
+    @Cacheable(cacheNames = AppConstants.POST_CACHE, key = "#id", sync = true)
+    @Transactional(readOnly = true)
     public PostDto getPostById(Long id) {
-        Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
-        return mapToPostDto(post);
+        Post post = ReadWriteRoutingDataSource.onPrimary(() -> postRepository.findById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
+        return PostMapper.mapToPostDto(post);
+    }
+
+    // 3.1). Post page: the post and its first comments from a single query (see PostRepository.findWithFirstComments)
+    // Not cached, the comments change far more often than the post
+    @Override
+    @Transactional(readOnly = true)
+    public PostWithComments getPostWithComments(Long id, int commentLimit) {
+        int limit = Math.max(1, Math.min(commentLimit, AppConstants.MAX_COMMENT_PAGE_SIZE));
+        List<Object[]> rows = postRepository.findWithFirstComments(id, Limit.of(limit));
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Post", "id", id);
+        }
+        List<CommentDto> comments = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            if (row[1] instanceof Comment comment) {
+                comments.add(CommentMapper.mapToCommentDto(comment));
+            }
+        }
+        return new PostWithComments(PostMapper.mapToPostDto((Post) rows.get(0)[0]), comments);
+    }
+
+    // 3.2). Multi-get for GET /api/posts?ids=...
+    // Posts already in the "posts" cache are served from there, all the others come from a single IN query.
+    // Not @Transactional: when every post is cached no connection is taken at all.
+    // The loaded posts are not put into the cache, an update committing in between could be cached back in stale
+    @Override
+    public PostBatchResponse getPostsByIds(List<Long> ids) {
+        //1. Duplicates are answered once, in the position of their first occurrence
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        if (requested.size() > AppConstants.MAX_BATCH_IDS) {
+            throw new BlogAPIException(HttpStatus.BAD_REQUEST, "At most " + AppConstants.MAX_BATCH_IDS + " ids can be requested at once");
+        }
+
+        //2. Cache hits first
+        Map<Long, PostDto> found = new HashMap<>();
+        List<Long> toLoad = new ArrayList<>();
+        for (Long id : requested) {
+            PostDto cached = postCache != null ? postCache.get(id, PostDto.class) : null;
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                toLoad.add(id);
+            }
+        }
+
+        //3. One query for the rest, from the primary like getPostById so a post doesn't show up here before it does there
+        if (!toLoad.isEmpty()) {
+            ReadWriteRoutingDataSource.onPrimary(() -> postRepository.findByIdIn(toLoad, Post.class))
+                    .forEach(post -> found.put(post.getId(), PostMapper.mapToPostDto(post)));
+        }
+
+        //4. Back into the requested order
+        List<PostDto> content = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : requested) {
+            PostDto postDto = found.get(id);
+            if (postDto != null) {
+                content.add(postDto);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        return new PostBatchResponse(content, missingIds);
+    }
+
+    // 3.3). Version lookup for conditional GETs
+    // Always the version column on the primary, never the "posts" cache or a replica: those can be behind a write
+    // made on another instance, and a 304 would leave the client with the old post for good.
+    @Override
+    public long getPostVersion(Long id) {
+        return ReadWriteRoutingDataSource.onPrimary(() -> postRepository.findVersionById(id))
+                .orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
     }
 
     // 4). This is for updatePost() Endpoint
     @Override
-    public PostDto updatePost(PostDto postDto, Long id) {
+    @Transactional
+    public PostDto updatePost(PostDto postDto, Long id, Long expectedVersion) {
         // get hold of post by id from the database if the id is not found throw an exception
         Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
 
+        // If-Match: the client edited an older version of the post
+        if (expectedVersion != null && !expectedVersion.equals(post.getVersion())) {
+            throw new BlogAPIException(HttpStatus.PRECONDITION_FAILED,
+                    "Post has been modified, current version is " + post.getVersion());
+        }
+
         // Next copy the contents of postDto into the new Post object
         //BeanUtils.copyProperties(postDto, post); // This is setting null breaking because of this
         post.setTitle(postDto.getTitle());
@@ -133,18 +465,68 @@ public class PostServiceImpl implements PostService {
         post.setDescription(postDto.getDescription());
 
         // save the new Post object to the database
-        Post updatedPost = postRepository.save(post);
+        // The version check is repeated by the UPDATE itself, which catches a write that happened after our read
+        Post updatedPost;
+        try {
+            updatedPost = postRepository.saveAndFlush(post);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new BlogAPIException(expectedVersion != null ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT,
+                    "Post has been modified by another request");
+        }
+        postSearchIndex.index(updatedPost);
+        evictAfterCommit(id);
 
-        return mapToPostDto(updatedPost);
+        return PostMapper.mapToPostDto(updatedPost);
     }
 
     // 5). This is for DeletePost() Endpoint
 
     @Override
+    @Transactional
     public void deletePostById(Long id) {
-        // get hold of post by id from the database if the id is not found throw an exception
-        Post post = postRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("Post", "id", id));
-        postRepository.delete(post);
+        // Two set-based DELETEs instead of loading the post and letting the cascade load and delete every comment
+        // one by one. No entity is read, the cost no longer grows with the number of comments held in memory
+        commentRepository.deleteByPostId(id);
+        deletePostRow(id);
+    }
+
+    // 5.1). Same with ?async=true, for posts with too many comments to delete in one transaction
+
+    @Override
+    public void deletePostByIdInBackground(Long id) {
+        if (!postRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Post", "id", id);
+        }
+        // The comments are deleted in chunks first, the post row goes last in its own transaction together with the
+        // comments written since the last chunk (without them the post row would fail on the foreign key)
+        postDeleteQueue.submit(id, () -> {
+            commentRepository.deleteByPostId(id);
+            deletePostRow(id);
+        });
+    }
+
+    // Must run in a transaction, an unknown id rolls it back (and the comment delete before it)
+    private void deletePostRow(Long id) {
+        if (postRepository.deleteOneById(id) == 0) {
+            throw new ResourceNotFoundException("Post", "id", id);
+        }
+        TransactionUtils.afterCommit(() -> {
+            postCountCache.decrement();
+            commentCountBuffer.forget(id);
+        });
+        // Not inside the callback above: remove() waits for the commit itself, and a callback registered while the
+        // afterCommit callbacks are running is never called
+        postSearchIndex.remove(id);
+        evictAfterCommit(id);
+    }
 
+    // Evicting before the commit would let a concurrent read put the old row back into the cache
+    private void evictAfterCommit(Long id) {
+        TransactionUtils.afterCommit(() -> {
+            if (postCache != null) {
+                postCache.evict(id);
+            }
+            postPageCache.invalidate();
+        });
     }
 }
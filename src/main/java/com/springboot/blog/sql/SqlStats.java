@@ -0,0 +1,134 @@
+package com.springboot.blog.sql;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+// SQL done by the current thread while a scope is open: number of statements sent to the database
+// (a JDBC batch counts once, it is one round trip), rows read from result sets, time spent inside JDBC calls
+// and how long the thread held a pooled connection (from getConnection() to close(), overlapping connections count once).
+// Scopes nest: SqlStatsFilter opens one per HTTP request and SqlStatsAspect one per service method call,
+// every statement is added to all scopes open on the thread.
+public class SqlStats {
+
+    // Left unset on threads that never open a scope (scheduled jobs, the comment writer, ...)
+    private static final ThreadLocal<Deque<SqlStats>> OPEN_SCOPES = new ThreadLocal<>();
+
+    private int statements;
+    private long rows;
+    private long timeNanos;
+
+    private int openConnections;
+    private long connectionSince;
+    private long connectionNanos;
+
+    public static SqlStats open() {
+        Deque<SqlStats> scopes = OPEN_SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            OPEN_SCOPES.set(scopes);
+        }
+        SqlStats stats = new SqlStats();
+        scopes.push(stats);
+        return stats;
+    }
+
+    // Scopes must be closed in the reverse order they were opened (try/finally)
+    public static void close(SqlStats stats) {
+        Deque<SqlStats> scopes = OPEN_SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        scopes.remove(stats);
+        // A connection that outlives the scope counts up to here
+        if (stats.openConnections > 0) {
+            stats.connectionNanos += System.nanoTime() - stats.connectionSince;
+            stats.openConnections = 0;
+        }
+        if (scopes.isEmpty()) {
+            OPEN_SCOPES.remove();
+        }
+    }
+
+    // The innermost open scope, or null when nothing is being measured on this thread
+    public static SqlStats current() {
+        Deque<SqlStats> scopes = OPEN_SCOPES.get();
+        return scopes != null ? scopes.peek() : null;
+    }
+
+    static void recordStatement(long elapsedNanos) {
+        Deque<SqlStats> scopes = OPEN_SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        for (SqlStats stats : scopes) {
+            stats.statements++;
+            stats.timeNanos += elapsedNanos;
+        }
+    }
+
+    static void recordRow() {
+        Deque<SqlStats> scopes = OPEN_SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        for (SqlStats stats : scopes) {
+            stats.rows++;
+        }
+    }
+
+    static void recordConnectionAcquired() {
+        Deque<SqlStats> scopes = OPEN_SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (SqlStats stats : scopes) {
+            if (stats.openConnections++ == 0) {
+                stats.connectionSince = now;
+            }
+        }
+    }
+
+    static void recordConnectionReleased() {
+        Deque<SqlStats> scopes = OPEN_SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (SqlStats stats : scopes) {
+            // Acquired before the scope was opened
+            if (stats.openConnections == 0) {
+                continue;
+            }
+            if (--stats.openConnections == 0) {
+                stats.connectionNanos += now - stats.connectionSince;
+            }
+        }
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    // Includes a connection that is still held, e.g. while the response body is being written
+    public long getConnectionNanos() {
+        return openConnections > 0 ? connectionNanos + System.nanoTime() - connectionSince : connectionNanos;
+    }
+
+    // e.g. "statements=2;rows=11;time=0.84ms;connection=1.20ms", sent as the X-SQL-Stats response header
+    @Override
+    public String toString() {
+        double nanosPerMs = TimeUnit.MILLISECONDS.toNanos(1);
+        return String.format("statements=%d;rows=%d;time=%.2fms;connection=%.2fms",
+                statements, rows, timeNanos / nanosPerMs, getConnectionNanos() / nanosPerMs);
+    }
+}
@@ -0,0 +1,74 @@
+package com.springboot.blog.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Measures the SQL of every public service method: service.sql.statements, service.sql.rows and service.sql.time,
+// tagged with the class and method name (e.g. class=CommentServiceImpl, method=getCommentById)
+@Aspect
+@Component
+@ConditionalOnProperty(name = SqlStatsConfig.ENABLED, matchIfMissing = true)
+public class SqlStatsAspect {
+
+    // rows is null when rows are not counted
+    private record Meters(DistributionSummary statements, DistributionSummary rows, Timer time) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean rowsEnabled;
+
+    // Registering looks the meter up in the registry every time, done once per method instead
+    private final ConcurrentHashMap<String, Meters> metersByMethod = new ConcurrentHashMap<>();
+
+    public SqlStatsAspect(MeterRegistry meterRegistry, @Value("${" + SqlStatsConfig.ROWS_ENABLED + ":false}") boolean rowsEnabled) {
+        this.meterRegistry = meterRegistry;
+        this.rowsEnabled = rowsEnabled;
+    }
+
+    @Around("execution(public * com.springboot.blog.service.impl.*.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        SqlStats stats = SqlStats.open();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            SqlStats.close(stats);
+            String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+            String methodName = joinPoint.getSignature().getName();
+
+            Meters meters = metersByMethod.computeIfAbsent(className + "." + methodName, key -> register(className, methodName));
+            meters.statements().record(stats.getStatements());
+            if (meters.rows() != null) {
+                meters.rows().record(stats.getRows());
+            }
+            meters.time().record(stats.getTimeNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Meters register(String className, String methodName) {
+        DistributionSummary statements = DistributionSummary.builder("service.sql.statements")
+                .description("SQL statements sent to the database per service method call")
+                .tags("class", className, "method", methodName)
+                .register(meterRegistry);
+        DistributionSummary rows = rowsEnabled
+                ? DistributionSummary.builder("service.sql.rows")
+                        .description("Rows read from the database per service method call")
+                        .tags("class", className, "method", methodName)
+                        .register(meterRegistry)
+                : null;
+        Timer time = Timer.builder("service.sql.time")
+                .description("Time spent in JDBC calls per service method call")
+                .tags("class", className, "method", methodName)
+                .register(meterRegistry);
+        return new Meters(statements, rows, time);
+    }
+}
@@ -0,0 +1,45 @@
+package com.springboot.blog.sql;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+// Wraps the DataSource with datasource-proxy so SqlStatsListener sees every statement and connection.
+// app.sql-stats.enabled=false leaves the DataSource (and the request/service metrics) out entirely.
+// Counting rows needs a proxy around every ResultSet, a call per next() on the hot path: only with
+// app.sql-stats.rows-enabled=true, the *.sql.rows metrics are not published otherwise
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = SqlStatsConfig.ENABLED, matchIfMissing = true)
+public class SqlStatsConfig {
+
+    public static final String ENABLED = "app.sql-stats.enabled";
+    public static final String ROWS_ENABLED = "app.sql-stats.rows-enabled";
+
+    // static, so the post processor is registered before the DataSource bean gets created
+    @Bean
+    public static BeanPostProcessor sqlStatsDataSourcePostProcessor(Environment environment) {
+        boolean rowsEnabled = environment.getProperty(ROWS_ENABLED, Boolean.class, false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    SqlStatsListener listener = new SqlStatsListener();
+                    ProxyDataSourceBuilder builder = ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(listener)
+                            .methodListener(listener);
+                    if (rowsEnabled) {
+                        builder.proxyResultSet();
+                    }
+                    return builder.build();
+                }
+                return bean;
+            }
+        };
+    }
+}
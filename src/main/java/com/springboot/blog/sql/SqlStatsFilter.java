@@ -0,0 +1,109 @@
+package com.springboot.blog.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Measures the SQL of every HTTP request and publishes it next to http.server.requests, tagged the same way:
+// http.server.requests.sql.statements, http.server.requests.sql.rows, http.server.requests.sql.time and
+// http.server.requests.sql.connection (how long the request kept a connection out of the pool).
+// The rows are only published with app.sql-stats.rows-enabled (see SqlStatsConfig).
+// The stats are also left in the request attribute ATTRIBUTE (used by SqlStatsResponseAdvice and by the tests).
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnProperty(name = SqlStatsConfig.ENABLED, matchIfMissing = true)
+public class SqlStatsFilter extends OncePerRequestFilter {
+
+    public static final String ATTRIBUTE = SqlStats.class.getName();
+    public static final String HEADER = "X-SQL-Stats";
+
+    // rows is null when rows are not counted
+    private record Meters(DistributionSummary statements, DistributionSummary rows, Timer time, Timer connection) {
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean headerEnabled;
+    private final boolean rowsEnabled;
+
+    // Registering looks the meter up in the registry every time, done once per method and URI pattern instead
+    private final ConcurrentHashMap<String, Meters> metersByEndpoint = new ConcurrentHashMap<>();
+
+    public SqlStatsFilter(MeterRegistry meterRegistry, @Value("${app.sql-stats.header-enabled:false}") boolean headerEnabled,
+                          @Value("${" + SqlStatsConfig.ROWS_ENABLED + ":false}") boolean rowsEnabled) {
+        this.meterRegistry = meterRegistry;
+        this.headerEnabled = headerEnabled;
+        this.rowsEnabled = rowsEnabled;
+    }
+
+    public boolean isHeaderEnabled() {
+        return headerEnabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStats stats = SqlStats.open();
+        request.setAttribute(ATTRIBUTE, stats);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStats.close(stats);
+            // Responses with a body already got the header from SqlStatsResponseAdvice, this covers the others (304, ...)
+            if (headerEnabled && !response.isCommitted()) {
+                response.setHeader(HEADER, stats.toString());
+            }
+            record(request, stats);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+
+        Meters meters = metersByEndpoint.computeIfAbsent(method + " " + uri, key -> register(method, uri));
+        meters.statements().record(stats.getStatements());
+        if (meters.rows() != null) {
+            meters.rows().record(stats.getRows());
+        }
+        meters.time().record(stats.getTimeNanos(), TimeUnit.NANOSECONDS);
+        meters.connection().record(stats.getConnectionNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private Meters register(String method, String uri) {
+        DistributionSummary statements = DistributionSummary.builder("http.server.requests.sql.statements")
+                .description("SQL statements sent to the database per request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry);
+        DistributionSummary rows = rowsEnabled
+                ? DistributionSummary.builder("http.server.requests.sql.rows")
+                        .description("Rows read from the database per request")
+                        .tags("method", method, "uri", uri)
+                        .register(meterRegistry)
+                : null;
+        Timer time = Timer.builder("http.server.requests.sql.time")
+                .description("Time spent in JDBC calls per request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry);
+        Timer connection = Timer.builder("http.server.requests.sql.connection")
+                .description("Time a pooled JDBC connection was held per request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry);
+        return new Meters(statements, rows, time, connection);
+    }
+}
@@ -0,0 +1,53 @@
+package com.springboot.blog.sql;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.MethodExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.List;
+
+// Registered on the datasource-proxy wrapper (see SqlStatsConfig), feeds every statement and row into SqlStats.
+public class SqlStatsListener implements QueryExecutionListener, MethodExecutionListener {
+
+    // datasource-proxy only reports milliseconds, most of our statements take less than that
+    private static final ThreadLocal<Long> STARTED_AT = new ThreadLocal<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        STARTED_AT.set(System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Long startedAt = STARTED_AT.get();
+        STARTED_AT.remove();
+        SqlStats.recordStatement(startedAt != null ? System.nanoTime() - startedAt : 0);
+    }
+
+    @Override
+    public void beforeMethod(MethodExecutionContext executionContext) {
+    }
+
+    // Every ResultSet.next() that returned true is one row read, a connection is held from getConnection() to close()
+    @Override
+    public void afterMethod(MethodExecutionContext executionContext) {
+        Object target = executionContext.getTarget();
+        String method = executionContext.getMethod().getName();
+        if (target instanceof ResultSet) {
+            if (method.equals("next") && Boolean.TRUE.equals(executionContext.getResult())) {
+                SqlStats.recordRow();
+            }
+        } else if (target instanceof DataSource) {
+            if (method.equals("getConnection") && executionContext.getThrown() == null) {
+                SqlStats.recordConnectionAcquired();
+            }
+        } else if (target instanceof Connection && method.equals("close")) {
+            SqlStats.recordConnectionReleased();
+        }
+    }
+}
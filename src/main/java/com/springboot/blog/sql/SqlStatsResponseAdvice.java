@@ -0,0 +1,40 @@
+package com.springboot.blog.sql;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Adds the X-SQL-Stats debug header (app.sql-stats.header-enabled=true) right before the body is written,
+// headers can't be added once the body went out
+@ControllerAdvice
+@ConditionalOnProperty(name = SqlStatsConfig.ENABLED, matchIfMissing = true)
+public class SqlStatsResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    private final SqlStatsFilter sqlStatsFilter;
+
+    public SqlStatsResponseAdvice(SqlStatsFilter sqlStatsFilter) {
+        this.sqlStatsFilter = sqlStatsFilter;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return sqlStatsFilter.isHeaderEnabled();
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+                && servletRequest.getServletRequest().getAttribute(SqlStatsFilter.ATTRIBUTE) instanceof SqlStats stats) {
+            response.getHeaders().set(SqlStatsFilter.HEADER, stats.toString());
+        }
+        return body;
+    }
+}
@@ -7,5 +7,37 @@ public class AppConstants {
     public static final String DEFAULT_SORT_BY = "id";
     public static final String DEFAULT_SORT_DIRECTION = "asc";
 
+    // How totalElements/totalPages are filled in PostResponse: exact (COUNT query), cached (in-memory counter) or none
+    public static final String DEFAULT_COUNT_MODE = "exact";
+
+    // Which columns the post listing returns: full or summary (id, title, description and commentCount only)
+    public static final String DEFAULT_POST_VIEW = "full";
+
+    // Search results only show the summary by default, view=full adds the content
+    public static final String DEFAULT_SEARCH_VIEW = "summary";
+
+    // Name of the cache holding PostDto by id, sized in application.properties (spring.cache.caffeine.spec)
+    public static final String POST_CACHE = "posts";
+
+    // Paging of GET /api/posts/{postId}/comments, the page size is capped so a viral post can't be loaded at once
+    public static final String DEFAULT_COMMENT_PAGE_SIZE = "20";
+    public static final int MAX_COMMENT_PAGE_SIZE = 100;
+
+    // Maximum number of comments accepted by one POST /api/posts/{postId}/comments/batch request
+    public static final int MAX_COMMENT_BATCH_SIZE = 10000;
+
+    // Maximum number of ids in one multi-get (GET /api/posts?ids=..., GET /api/comments?postIds=...), keeps the IN list bounded
+    public static final int MAX_BATCH_IDS = 100;
+
+    // Page size cap of GET /api/posts?cursor=..., one window is read in a single query
+    public static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    // Rows the JDBC driver pulls per round trip while streaming the export (server-side cursor)
+    public static final String EXPORT_FETCH_SIZE = "500";
+
+    // GET /api/posts/search ranks every hit up to the end of the requested page, so pages only go this deep
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+    public static final int MAX_SEARCH_RESULTS = 1000;
+
 
 }
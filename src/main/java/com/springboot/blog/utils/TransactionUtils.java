@@ -0,0 +1,27 @@
+package com.springboot.blog.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Helpers for in-memory state (counters, the search index, ...) that has to follow what was written to the database
+public final class TransactionUtils {
+
+    private TransactionUtils() {
+    }
+
+    // Runs the action once the current transaction commits, so a rollback leaves the in-memory state alone.
+    // Without a transaction the write has already been committed by the repository call, so it runs right away.
+    // Not from inside another action: during afterCommit the synchronization is still active, the new one is never called.
+    public static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+-- Schema of the Post and Comment entities, as ddl-auto=update created it so far.
+-- Deleting a post also deletes its comments in the database (ON DELETE CASCADE), databases baselined at version 1
+-- keep the plain foreign key, PostServiceImpl.deletePostById deletes the comments itself either way.
+
+create sequence comments_seq start with 1 increment by 50;
+
+create table posts (
+    id            bigint generated by default as identity,
+    title         varchar(255) not null,
+    description   varchar(255) not null,
+    content       varchar(255) not null,
+    version       bigint default 0 not null,
+    comment_count bigint default 0 not null,
+    constraint pk_posts primary key (id),
+    constraint uk_posts_title unique (title)
+);
+
+-- Keyset pagination on description, title is covered by its unique constraint
+create index idx_posts_description_id on posts (description, id);
+
+create table comments (
+    id      bigint not null,
+    name    varchar(255),
+    email   varchar(255),
+    body    varchar(255),
+    post_id bigint not null,
+    constraint pk_comments primary key (id),
+    constraint fk_comments_post foreign key (post_id) references posts (id) on delete cascade
+);
+
+-- Comments of a post ordered by id
+create index idx_comments_post_id_id on comments (post_id, id);
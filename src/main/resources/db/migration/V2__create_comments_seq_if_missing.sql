@@ -0,0 +1,3 @@
+-- Databases baselined at version 1 come from ddl-auto=update and may predate comments_seq (comment ids used to be
+-- IDENTITY). The sequence starts at 1 here, CommentSequenceCheck moves it past the existing ids on startup.
+create sequence if not exists comments_seq start with 1 increment by 50;
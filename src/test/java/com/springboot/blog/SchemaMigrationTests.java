@@ -0,0 +1,56 @@
+package com.springboot.blog;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Starts the application with the prod profile on an empty H2 database: the schema only comes from the Flyway
+// migrations, and ddl-auto=validate makes the context fail if they don't match the entities
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:migrations;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles({"test", "prod"})
+class SchemaMigrationTests {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Test
+    void migrationsMatchTheEntities() {
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("2");
+        assertThat(flyway.info().pending()).isEmpty();
+    }
+
+    // One transaction (rolled back afterwards), pooled connections don't auto-commit
+    @Test
+    @Transactional
+    void deletingAPostDeletesItsComments() {
+        jdbcTemplate.update("insert into posts (title, description, content) values ('Cascade', 'd', 'c')");
+        Long postId = jdbcTemplate.queryForObject("select id from posts where title = 'Cascade'", Long.class);
+        jdbcTemplate.update("insert into comments (id, name, email, body, post_id) values (next value for comments_seq, 'n', 'e', 'b', ?)", postId);
+
+        jdbcTemplate.update("delete from posts where id = ?", postId);
+
+        assertThat(jdbcTemplate.queryForObject("select count(*) from comments where post_id = ?", Long.class, postId)).isZero();
+    }
+
+    @Test
+    void onlyScheduledBeansAreCreatedAtStartup() {
+        assertThat(context.getBeanFactory().containsSingleton("postCountCache")).isTrue();
+        assertThat(context.getBeanFactory().containsSingleton("exportController")).isFalse();
+    }
+}
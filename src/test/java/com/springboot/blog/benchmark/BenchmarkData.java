@@ -0,0 +1,53 @@
+package com.springboot.blog.benchmark;
+
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+
+// Test data shared by the benchmarks, sized like a typical blog post and comment
+final class BenchmarkData {
+
+    // Post.content is mapped to the default varchar(255) column, so stay just under that
+    static final String CONTENT = "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(4);
+
+    private BenchmarkData() {
+    }
+
+    static Post post(long id) {
+        Post post = new Post();
+        post.setId(id);
+        post.setTitle("Benchmark post " + id);
+        post.setDescription("A short description of benchmark post " + id);
+        post.setContent(CONTENT);
+        return post;
+    }
+
+    static PostDto postDto(long id) {
+        PostDto postDto = new PostDto();
+        postDto.setId(id);
+        postDto.setTitle("Benchmark post " + id);
+        postDto.setDescription("A short description of benchmark post " + id);
+        postDto.setContent(CONTENT);
+        return postDto;
+    }
+
+    static Comment comment(long id, Post post) {
+        Comment comment = new Comment();
+        comment.setId(id);
+        comment.setName("Reader " + id);
+        comment.setEmail("reader" + id + "@example.com");
+        comment.setBody("Thanks for the post, comment number " + id);
+        comment.setPost(post);
+        return comment;
+    }
+
+    static CommentDto commentDto(long id) {
+        CommentDto commentDto = new CommentDto();
+        commentDto.setId(id);
+        commentDto.setName("Reader " + id);
+        commentDto.setEmail("reader" + id + "@example.com");
+        commentDto.setBody("Thanks for the post, comment number " + id);
+        return commentDto;
+    }
+}
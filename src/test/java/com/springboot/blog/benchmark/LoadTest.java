@@ -0,0 +1,355 @@
+package com.springboot.blog.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.SpringbootBlogRestApiApplication;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.PostService;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Open-loop load test with latency budgets: mvn -Pload-test verify (settings and budgets in load-test.properties).
+// Boots the application on the in-memory H2 database of the test profile, seeds posts and comments through the
+// services, then sends a fixed number of requests per second to each PostController and CommentController endpoint.
+// The schedule never waits for responses. A closed loop (JMH threads, a fixed pool of virtual users) sends less
+// exactly when the server stalls and hides the stall from its percentiles ("coordinated omission"); here the
+// requests pile up like they would with real users. For the same reason every latency is measured from the time the
+// request was scheduled, not from when it actually went out, so a late send also counts against the result.
+// Exits with 1 when a budget is exceeded, which fails the build.
+public class LoadTest {
+
+    // Latencies are recorded in microseconds with 3 significant digits, anything above a minute is clamped
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    private static final List<String> PERCENTILES = List.of("p50", "p99", "p99.9");
+    private static final List<String> ENDPOINTS = List.of("posts-page", "posts-get", "posts-with-comments", "posts-search",
+            "comments-list", "comments-create", "posts-create");
+
+    private final Properties config;
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final List<Long> postIds = new ArrayList<>();
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong maxSendDelayNanos = new AtomicLong();
+    private final AtomicLong createdPosts = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private ObjectMapper objectMapper;
+    private String baseUrl;
+
+    private LoadTest(Properties config) {
+        this.config = config;
+    }
+
+    // Arguments are key=value overrides of load-test.properties
+    public static void main(String[] args) throws Exception {
+        Properties config = new Properties();
+        try (InputStream in = LoadTest.class.getResourceAsStream("/load-test.properties")) {
+            config.load(in);
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            config.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        checkKeys(config);
+
+        // Devtools is on the classpath and would restart this main method in a new class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        LoadTest loadTest = new LoadTest(config);
+        boolean withinBudget;
+        try {
+            loadTest.start();
+            loadTest.run();
+            withinBudget = loadTest.report();
+        } finally {
+            loadTest.stop();
+        }
+        System.exit(withinBudget ? 0 : 1);
+    }
+
+    private void start() {
+        context = new SpringApplicationBuilder(SpringbootBlogRestApiApplication.class)
+                .profiles("test")
+                .properties(
+                        "logging.level.root=WARN",
+                        "server.port=0")
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new DatabaseLatency(longValue("db-latency-ms"))))
+                .run();
+        seed();
+
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        objectMapper = context.getBean(ObjectMapper.class);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        // The mix: what a reader and the occasional writer do
+        int pages = Math.max(postIds.size() / 10, 1);
+        addEndpoint("posts-page", () -> get("/api/posts?pageSize=10&pageNo=" + ThreadLocalRandom.current().nextInt(pages)));
+        addEndpoint("posts-get", () -> get("/api/posts/" + randomPostId()));
+        addEndpoint("posts-with-comments", () -> get("/api/posts/" + randomPostId() + "?include=comments"));
+        // Seeded titles end with their number ("Benchmark post 17"), so this finds one post
+        addEndpoint("posts-search", () -> get("/api/posts/search?q=" + (ThreadLocalRandom.current().nextInt(postIds.size()) + 1)));
+        addEndpoint("comments-list", () -> get("/api/posts/" + randomPostId() + "/comments"));
+        addEndpoint("comments-create", () -> post("/api/posts/" + randomPostId() + "/comments", BenchmarkData.commentDto(0)));
+        addEndpoint("posts-create", () -> post("/api/posts", newPost()));
+    }
+
+    private void seed() {
+        PostService postService = context.getBean(PostService.class);
+        CommentService commentService = context.getBean(CommentService.class);
+        int posts = intValue("seed.posts");
+        int commentsPerPost = intValue("seed.comments-per-post");
+        for (long i = 1; i <= posts; i++) {
+            PostDto post = BenchmarkData.postDto(i);
+            post.setId(null);
+            long postId = postService.createPost(post).getId();
+            postIds.add(postId);
+
+            if (commentsPerPost > 0) {
+                List<CommentDto> comments = new ArrayList<>(commentsPerPost);
+                for (long c = 1; c <= commentsPerPost; c++) {
+                    comments.add(BenchmarkData.commentDto(0));
+                }
+                commentService.createComments(postId, comments);
+            }
+        }
+    }
+
+    private void run() throws InterruptedException {
+        long warmup = TimeUnit.SECONDS.toNanos(longValue("warmup"));
+        long duration = TimeUnit.SECONDS.toNanos(longValue("duration"));
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + warmup;
+        long end = measureFrom + duration;
+        System.out.printf("Sending %.0f requests/s for %ds (warmup) + %ds%n",
+                endpoints.stream().mapToDouble(Endpoint::rate).sum(), longValue("warmup"), longValue("duration"));
+
+        List<Thread> schedulers = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            schedulers.add(schedule(endpoint, start, measureFrom, end));
+        }
+        for (Thread scheduler : schedulers) {
+            scheduler.join();
+        }
+
+        // Give the last requests as long as the histograms can record
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(HIGHEST_TRACKABLE_MICROS);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    // One thread per endpoint sends its requests at fixed intervals. It starts at a random point of the first interval
+    // so the endpoints don't all fire at the same instant
+    private Thread schedule(Endpoint endpoint, long start, long measureFrom, long end) {
+        long interval = Math.round(TimeUnit.SECONDS.toNanos(1) / endpoint.rate());
+        long first = start + ThreadLocalRandom.current().nextLong(interval);
+        return Thread.ofPlatform().name("load-" + endpoint.name()).start(() -> {
+            for (long scheduled = first; scheduled < end; scheduled += interval) {
+                long wait;
+                while ((wait = scheduled - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                maxSendDelayNanos.accumulateAndGet(-wait, Math::max);
+                send(endpoint, scheduled, scheduled >= measureFrom);
+            }
+        });
+    }
+
+    private void send(Endpoint endpoint, long scheduled, boolean measured) {
+        HttpRequest request = endpoint.request().get();
+        inFlight.incrementAndGet();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+            long latency = System.nanoTime() - scheduled;
+            try {
+                if (!measured) {
+                    return;
+                }
+                if (failure != null || response.statusCode() >= 400) {
+                    endpoint.errors().increment();
+                    endpoint.firstError().compareAndSet(null, failure != null
+                            ? failure.toString()
+                            : "HTTP " + response.statusCode() + " " + request.method() + " " + request.uri() + " " + response.body());
+                    return;
+                }
+                endpoint.latencies().recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latency), HIGHEST_TRACKABLE_MICROS));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+    }
+
+    private boolean report() throws IOException {
+        long seconds = longValue("duration");
+        System.out.printf("%n%-20s %8s %8s %7s %9s %9s %9s %9s%n",
+                "endpoint", "rate/s", "count", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Endpoint endpoint : endpoints) {
+            Histogram latencies = endpoint.latencies();
+            System.out.printf("%-20s %8.1f %8d %7d %9.2f %9.2f %9.2f %9.2f%n",
+                    endpoint.name(), (double) latencies.getTotalCount() / seconds, latencies.getTotalCount(), endpoint.errors().sum(),
+                    percentile(latencies, "p50"), percentile(latencies, "p99"), percentile(latencies, "p99.9"),
+                    latencies.getMaxValue() / 1000.0);
+        }
+        System.out.printf("Latest send: %.2f ms behind schedule%n", maxSendDelayNanos.get() / 1_000_000.0);
+
+        String output = config.getProperty("output");
+        if (output != null) {
+            Path directory = Files.createDirectories(Path.of(output));
+            for (Endpoint endpoint : endpoints) {
+                try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(endpoint.name() + ".hgrm")))) {
+                    endpoint.latencies().outputPercentileDistribution(out, 1000.0);
+                }
+            }
+            System.out.println("Percentile distributions (ms) written to " + directory);
+        }
+
+        List<String> failures = new ArrayList<>();
+        long errors = endpoints.stream().mapToLong(endpoint -> endpoint.errors().sum()).sum();
+        if (errors > longValue("max-errors")) {
+            failures.add(errors + " failed requests, at most " + longValue("max-errors") + " allowed");
+            endpoints.stream()
+                    .filter(endpoint -> endpoint.firstError().get() != null)
+                    .forEach(endpoint -> failures.add(endpoint.name() + " first failure: " + endpoint.firstError().get()));
+        }
+        if (inFlight.get() > 0) {
+            failures.add(inFlight.get() + " requests still unanswered");
+        }
+        for (Endpoint endpoint : endpoints) {
+            for (String percentile : PERCENTILES) {
+                String budget = config.getProperty("budget." + endpoint.name() + "." + percentile);
+                if (budget == null) {
+                    continue;
+                }
+                if (endpoint.latencies().getTotalCount() == 0) {
+                    failures.add(endpoint.name() + ": no successful response");
+                    break;
+                }
+                double millis = percentile(endpoint.latencies(), percentile);
+                if (millis > Double.parseDouble(budget)) {
+                    failures.add(String.format("%s %s: %.2f ms, budget %s ms", endpoint.name(), percentile, millis, budget));
+                }
+            }
+        }
+
+        System.out.println();
+        if (failures.isEmpty()) {
+            System.out.println("All latency budgets met");
+        }
+        failures.forEach(failure -> System.out.println("OVER BUDGET " + failure));
+        return failures.isEmpty();
+    }
+
+    private void stop() {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    private void addEndpoint(String name, Supplier<HttpRequest> request) {
+        double rate = Double.parseDouble(config.getProperty("rate." + name, "0"));
+        if (rate > 0) {
+            endpoints.add(new Endpoint(name, rate, request, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3),
+                    new LongAdder(), new AtomicReference<>()));
+        }
+    }
+
+    // A misspelled endpoint or percentile would silently turn a budget off
+    private static void checkKeys(Properties config) {
+        for (String key : config.stringPropertyNames()) {
+            if (key.startsWith("rate.") && !ENDPOINTS.contains(key.substring("rate.".length()))) {
+                throw new IllegalArgumentException("Unknown endpoint: " + key);
+            }
+            if (key.startsWith("budget.")) {
+                String endpointAndPercentile = key.substring("budget.".length());
+                int separator = endpointAndPercentile.indexOf('.');
+                if (separator < 0
+                        || !ENDPOINTS.contains(endpointAndPercentile.substring(0, separator))
+                        || !PERCENTILES.contains(endpointAndPercentile.substring(separator + 1))) {
+                    throw new IllegalArgumentException("Expected budget.<endpoint>.<" + String.join("|", PERCENTILES) + ">: " + key);
+                }
+            }
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        try {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Titles are unique
+    private PostDto newPost() {
+        PostDto post = BenchmarkData.postDto(0);
+        post.setId(null);
+        post.setTitle("Load test post " + createdPosts.incrementAndGet());
+        return post;
+    }
+
+    private long randomPostId() {
+        return postIds.get(ThreadLocalRandom.current().nextInt(postIds.size()));
+    }
+
+    private static double percentile(Histogram latencies, String percentile) {
+        return latencies.getValueAtPercentile(Double.parseDouble(percentile.substring(1))) / 1000.0;
+    }
+
+    private int intValue(String key) {
+        return Integer.parseInt(required(key));
+    }
+
+    private long longValue(String key) {
+        return Long.parseLong(required(key));
+    }
+
+    private String required(String key) {
+        String value = config.getProperty(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing " + key + " in load-test.properties");
+        }
+        return value.trim();
+    }
+
+    private record Endpoint(String name, double rate, Supplier<HttpRequest> request, Histogram latencies,
+                            LongAdder errors, AtomicReference<String> firstError) {
+    }
+}
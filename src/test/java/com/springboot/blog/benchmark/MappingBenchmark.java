@@ -0,0 +1,94 @@
+package com.springboot.blog.benchmark;
+
+import com.springboot.blog.entity.Comment;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.mapper.CommentMapper;
+import com.springboot.blog.mapper.PostMapper;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.BeanUtils;
+
+import java.util.concurrent.TimeUnit;
+
+// Cost of one conversion, entity -> DTO and DTO -> entity, with the handwritten mappers next to the reflective
+// BeanUtils.copyProperties they replaced
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private Post post;
+    private Comment comment;
+    private PostDto postDto;
+    private CommentDto commentDto;
+
+    @Setup
+    public void setUp() {
+        post = BenchmarkData.post(1L);
+        comment = BenchmarkData.comment(1L, post);
+        postDto = BenchmarkData.postDto(1L);
+        commentDto = BenchmarkData.commentDto(1L);
+    }
+
+    @Benchmark
+    public PostDto mapToPostDto() {
+        return PostMapper.mapToPostDto(post);
+    }
+
+    @Benchmark
+    public PostDto mapToPostDtoBeanUtils() {
+        PostDto postDto = new PostDto();
+        BeanUtils.copyProperties(post, postDto);
+        return postDto;
+    }
+
+    @Benchmark
+    public CommentDto mapToCommentDto() {
+        return CommentMapper.mapToCommentDto(comment);
+    }
+
+    @Benchmark
+    public CommentDto mapToCommentDtoBeanUtils() {
+        CommentDto commentDto = new CommentDto();
+        BeanUtils.copyProperties(comment, commentDto);
+        return commentDto;
+    }
+
+    @Benchmark
+    public Post mapToPostEntity() {
+        return PostMapper.mapToPostEntity(postDto);
+    }
+
+    @Benchmark
+    public Post mapToPostEntityBeanUtils() {
+        Post entity = new Post();
+        // Skipped like in PostMapper.mapToPostEntity, the client can't set them
+        BeanUtils.copyProperties(postDto, entity, "version", "commentCount");
+        return entity;
+    }
+
+    @Benchmark
+    public Comment mapToCommentEntity() {
+        return CommentMapper.mapToCommentEntity(commentDto);
+    }
+
+    @Benchmark
+    public Comment mapToCommentEntityBeanUtils() {
+        Comment entity = new Comment();
+        BeanUtils.copyProperties(commentDto, entity);
+        return entity;
+    }
+}
@@ -0,0 +1,63 @@
+package com.springboot.blog.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of the response bodies, with an ObjectMapper configured the way Spring Boot builds it
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private PostResponse postResponse;
+    private List<CommentDto> comments;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<PostDto> posts = new ArrayList<>(size);
+        comments = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            posts.add(BenchmarkData.postDto(id));
+            comments.add(BenchmarkData.commentDto(id));
+        }
+        postResponse = new PostResponse(posts, 0, size, (long) size, 1, true, true);
+    }
+
+    @Benchmark
+    public byte[] serializePostResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(postResponse);
+    }
+
+    @Benchmark
+    public byte[] serializeComments() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(comments);
+    }
+}
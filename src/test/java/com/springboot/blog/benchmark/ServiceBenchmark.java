@@ -0,0 +1,142 @@
+package com.springboot.blog.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springboot.blog.SpringbootBlogRestApiApplication;
+import com.springboot.blog.cache.PostPageCache;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.CommentResponse;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.payload.PostResponse;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.PostService;
+import com.springboot.blog.utils.AppConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// PostServiceImpl/CommentServiceImpl call paths against the embedded H2 database of the test profile.
+// The absolute numbers are not PostgreSQL numbers, they are meant for comparing one build with another.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceBenchmark {
+
+    private static final int POSTS = 200;
+    private static final int COMMENTS_PER_POST = 50;
+
+    private ConfigurableApplicationContext context;
+    private PostService postService;
+    private CommentService commentService;
+    private Cache postCache;
+    private PostPageCache postPageCache;
+    private ObjectMapper objectMapper;
+
+    private long postId;
+    private long commentId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringbootBlogRestApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .properties("logging.level.root=WARN")
+                .run();
+        postService = context.getBean(PostService.class);
+        commentService = context.getBean(CommentService.class);
+        postCache = context.getBean(CacheManager.class).getCache(AppConstants.POST_CACHE);
+        postPageCache = context.getBean(PostPageCache.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        for (long i = 1; i <= POSTS; i++) {
+            PostDto post = BenchmarkData.postDto(i);
+            post.setId(null);
+            post = postService.createPost(post);
+
+            List<CommentDto> comments = new ArrayList<>(COMMENTS_PER_POST);
+            for (long c = 1; c <= COMMENTS_PER_POST; c++) {
+                comments.add(BenchmarkData.commentDto(0));
+            }
+            List<Long> commentIds = commentService.createComments(post.getId(), comments);
+
+            // Use a post from the middle of the table
+            if (i == POSTS / 2) {
+                postId = post.getId();
+                commentId = commentIds.get(COMMENTS_PER_POST / 2);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public PostDto getPostByIdCached() {
+        return postService.getPostById(postId);
+    }
+
+    @Benchmark
+    public PostDto getPostByIdUncached() {
+        postCache.evict(postId);
+        return postService.getPostById(postId);
+    }
+
+    @Benchmark
+    public PostResponse getAllPosts() {
+        return postService.getAllPosts(0, 10, "id", "asc", "exact", "full", null);
+    }
+
+    // What GET /api/posts costs without PostPageCache: query plus serialization
+    @Benchmark
+    public byte[] getAllPostsSerialized() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(postService.getAllPosts(0, 10, "id", "asc", "exact", "full", null));
+    }
+
+    @Benchmark
+    public byte[] getAllPostsFromPageCache() {
+        return postPageCache.get(0, 10, "id", "asc", () -> postService.getAllPosts(0, 10, "id", "asc", "exact", "full", null));
+    }
+
+    @Benchmark
+    public PostResponse getAllPostsSummaryWithoutCount() {
+        return postService.getAllPosts(0, 10, "id", "asc", "none", "summary", null);
+    }
+
+    @Benchmark
+    public PostResponse searchPosts() {
+        return postService.searchPosts("benchmark post", 0, 10, "summary", null);
+    }
+
+    @Benchmark
+    public CommentResponse getCommentsByPostId() {
+        return commentService.getCommentsByPostId(postId, 0, 20, null);
+    }
+
+    @Benchmark
+    public CommentDto getCommentById() {
+        return commentService.getCommentById(postId, commentId);
+    }
+}
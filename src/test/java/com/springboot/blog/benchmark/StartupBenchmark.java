@@ -0,0 +1,80 @@
+package com.springboot.blog.benchmark;
+
+import com.springboot.blog.SpringbootBlogRestApiApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// Time to first request: from SpringApplication.run() until the first GET /api/posts has been answered, in a fresh
+// JVM every time (one fork per sample, nothing warmed up), which is what a new instance goes through when scaling out.
+// schema=update is the old startup (Hibernate reads and diffs the schema), schema=flyway the prod profile one
+// (versioned migrations, no schema diffing, no JDBC metadata lookup). lazy=true adds spring.main.lazy-initialization.
+// AOT and the CDS archive only apply to the packaged jar, see the fast-startup profile in pom.xml.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(5)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    @Param({"update", "flyway"})
+    private String schema;
+
+    @Param({"false", "true"})
+    private boolean lazy;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(SpringbootBlogRestApiApplication.class)
+                .profiles("test")
+                .properties(
+                        "logging.level.root=WARN",
+                        "server.port=0",
+                        "spring.main.lazy-initialization=" + lazy);
+        if (schema.equals("flyway")) {
+            application.properties(
+                    "spring.jpa.hibernate.ddl-auto=none",
+                    "spring.flyway.enabled=true",
+                    "spring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false");
+        } else {
+            application.properties("spring.jpa.hibernate.ddl-auto=update");
+        }
+        context = application.run();
+
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        try (HttpClient httpClient = HttpClient.newHttpClient()) {
+            HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/posts")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+            return response.statusCode();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,119 @@
+package com.springboot.blog.benchmark;
+
+import com.springboot.blog.SpringbootBlogRestApiApplication;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.PostService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Thread-per-request (Tomcat platform thread pool) vs. virtual threads, measured over real HTTP calls.
+// 64 client threads hit a server with only 16 Tomcat threads and a pool of 32 connections, so in platform mode
+// the request threads run out before the connection pool does, while virtual threads can use the whole pool.
+// dbLatencyMs adds a round trip to every connection checkout (see DatabaseLatency).
+// Throughput gives requests/ms, SampleTime gives the latency percentiles (p0.99 in the JMH output).
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Threads(64)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadModelBenchmark {
+
+    private static final int POSTS = 100;
+    private static final int COMMENTS_PER_POST = 20;
+
+    @Param({"platform", "virtual"})
+    private String threadModel;
+
+    @Param({"0", "5"})
+    private long dbLatencyMs;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest listPostsRequest;
+    private HttpRequest listCommentsRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringbootBlogRestApiApplication.class)
+                .profiles("test")
+                .properties(
+                        "logging.level.root=WARN",
+                        "server.port=0",
+                        "server.tomcat.threads.max=16",
+                        "spring.datasource.hikari.maximum-pool-size=32",
+                        "spring.threads.virtual.enabled=" + threadModel.equals("virtual"))
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(new DatabaseLatency(dbLatencyMs)))
+                .run();
+
+        PostService postService = context.getBean(PostService.class);
+        CommentService commentService = context.getBean(CommentService.class);
+        long postId = 0;
+        for (long i = 1; i <= POSTS; i++) {
+            PostDto post = BenchmarkData.postDto(i);
+            post.setId(null);
+            postId = postService.createPost(post).getId();
+
+            List<CommentDto> comments = new ArrayList<>(COMMENTS_PER_POST);
+            for (long c = 1; c <= COMMENTS_PER_POST; c++) {
+                comments.add(BenchmarkData.commentDto(0));
+            }
+            commentService.createComments(postId, comments);
+        }
+
+        String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        listPostsRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/posts?pageSize=10&count=none")).build();
+        listCommentsRequest = HttpRequest.newBuilder(URI.create(baseUrl + "/api/posts/" + postId + "/comments")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int listPosts() throws IOException, InterruptedException {
+        return send(listPostsRequest);
+    }
+
+    @Benchmark
+    public int listComments() throws IOException, InterruptedException {
+        return send(listCommentsRequest);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + " for " + request.uri());
+        }
+        return response.body().length;
+    }
+}
@@ -0,0 +1,77 @@
+package com.springboot.blog.config;
+
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.service.CommentService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// A database created by ddl-auto=update before comment ids came from comments_seq: comments has an IDENTITY id,
+// 120 rows and no sequence. The prod profile baselines it at version 1, V2 creates the sequence (starting at 1)
+// and CommentSequenceCheck has to move it past the existing ids before the first insert
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + CommentSequenceCheckTests.URL,
+        "spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles({"test", "prod"})
+class CommentSequenceCheckTests {
+
+    static final String URL = "jdbc:h2:mem:existing-comments;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    static {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    create table posts (
+                        id bigint generated by default as identity primary key,
+                        title varchar(255) not null unique,
+                        description varchar(255) not null,
+                        content varchar(255) not null,
+                        version bigint default 0 not null,
+                        comment_count bigint default 0 not null)""");
+            statement.execute("""
+                    create table comments (
+                        id bigint generated by default as identity primary key,
+                        name varchar(255),
+                        email varchar(255),
+                        body varchar(255),
+                        post_id bigint not null references posts (id))""");
+            statement.execute("insert into posts (id, title, description, content) values (1, 'Existing', 'd', 'c')");
+            statement.execute("insert into comments (id, name, email, body, post_id) select x, 'n', 'e', 'b', 1 from system_range(1, 120)");
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Test
+    void newCommentIdsStartAfterTheExistingOnes() {
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("2");
+
+        CommentDto comment = new CommentDto();
+        comment.setName("Reader");
+        comment.setEmail("reader@example.com");
+        comment.setBody("Nice post");
+        List<Long> ids = commentService.createComments(1, List.of(comment, comment, comment));
+        ids.add(commentService.createComment(1, comment).getId());
+
+        assertThat(ids).allSatisfy(id -> assertThat(id).isGreaterThan(120));
+        assertThat(new HashSet<>(ids)).hasSameSizeAs(ids);
+    }
+}
@@ -0,0 +1,143 @@
+package com.springboot.blog.config;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Three in-memory H2 databases stand in for a primary and two replicas. There is no replication between them,
+// replicate() copies the primary over, so a row only shows up on a replica once the test decides it has "arrived".
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReadReplicaRoutingTests.PRIMARY,
+        "app.datasource.replica-urls=" + ReadReplicaRoutingTests.REPLICA_1 + "," + ReadReplicaRoutingTests.REPLICA_2
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReadReplicaRoutingTests {
+
+    static final String PRIMARY = "jdbc:h2:mem:routing-primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_1 = "jdbc:h2:mem:routing-replica-1;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_2 = "jdbc:h2:mem:routing-replica-2;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+
+    // The replicas need the schema Hibernate created on the primary before anything reads from them
+    @TestConfiguration
+    static class InitialReplication {
+        @EventListener(ContextRefreshedEvent.class)
+        void replicateSchema() throws SQLException {
+            replicate(REPLICA_1);
+            replicate(REPLICA_2);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicas() throws Exception {
+        String title = createPost().title();
+
+        assertThat(listedTitles(listRequest())).doesNotContain(title);
+
+        replicate(REPLICA_1);
+        replicate(REPLICA_2);
+        assertThat(listedTitles(listRequest())).contains(title);
+    }
+
+    @Test
+    void readsAreSpreadOverTheReplicas() throws Exception {
+        String title = createPost().title();
+        replicate(REPLICA_1);
+
+        // Only one replica has the post, consecutive reads see it on one and miss it on the other
+        Set<Boolean> found = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            found.add(listedTitles(listRequest()).contains(title));
+        }
+        assertThat(found).containsExactlyInAnyOrder(true, false);
+    }
+
+    @Test
+    void clientReadsItsOwnWritesFromThePrimary() throws Exception {
+        CreatedPost createdPost = createPost();
+        assertThat(createdPost.cookie()).isNotNull();
+
+        assertThat(listedTitles(listRequest().cookie(createdPost.cookie()))).contains(createdPost.title());
+    }
+
+    @Test
+    void postCacheIsLoadedFromThePrimary() throws Exception {
+        CreatedPost createdPost = createPost();
+
+        mockMvc.perform(get("/api/posts/{id}", createdPost.id()))
+                .andExpect(status().isOk());
+    }
+
+    private record CreatedPost(long id, String title, Cookie cookie) {
+    }
+
+    private CreatedPost createPost() throws Exception {
+        String title = "Routing " + UUID.randomUUID();
+        MvcResult result = mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"description\":\"d\",\"content\":\"c\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        long id = JsonPath.<Number>read(result.getResponse().getContentAsString(), "$.id").longValue();
+        return new CreatedPost(id, title, result.getResponse().getCookie(ReadYourWritesFilter.COOKIE));
+    }
+
+    // Not served from PostPageCache, so it always runs a read-only query
+    private MockHttpServletRequestBuilder listRequest() {
+        return get("/api/posts").param("view", "summary").param("count", "none")
+                .param("sortDir", "desc").param("pageSize", "100");
+    }
+
+    private List<String> listedTitles(MockHttpServletRequestBuilder request) throws Exception {
+        String json = mockMvc.perform(request).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return JsonPath.read(json, "$.content[*].title");
+    }
+
+    // Replaces everything on the replica with a copy of the primary
+    private static void replicate(String replicaUrl) throws SQLException {
+        List<String> script = new ArrayList<>();
+        try (Connection primary = DriverManager.getConnection(PRIMARY, "sa", "");
+             Statement statement = primary.createStatement();
+             ResultSet resultSet = statement.executeQuery("SCRIPT")) {
+            while (resultSet.next()) {
+                script.add(resultSet.getString(1));
+            }
+        }
+        try (Connection replica = DriverManager.getConnection(replicaUrl, "sa", "");
+             Statement statement = replica.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : script) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
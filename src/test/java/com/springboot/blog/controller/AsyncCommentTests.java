@@ -0,0 +1,149 @@
+package com.springboot.blog.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.queue.CommentWriteQueue;
+import com.springboot.blog.service.PostService;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// POST /api/posts/{postId}/comments?async=true with a queue of 2. The comment-writer thread is held at the start of
+// its first transaction, so the queue fills up behind it and stays full until the test lets it go.
+// The test stops the queue itself, the context is thrown away afterwards (own database, no other test shares it)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:async-comments;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "app.comments.async.queue-capacity=2"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DirtiesContext
+class AsyncCommentTests {
+
+    static final CountDownLatch writerBlocked = new CountDownLatch(1);
+    static final CountDownLatch gate = new CountDownLatch(1);
+
+    // Wraps the transaction manager (behind its interfaces, getTransaction is final in the class) so that the
+    // comment-writer waits for the gate before it begins a transaction
+    @TestConfiguration
+    static class HoldWriter {
+        @Bean
+        static BeanPostProcessor holdWriterTransactions() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof PlatformTransactionManager)) {
+                        return bean;
+                    }
+                    ProxyFactory proxyFactory = new ProxyFactory(bean);
+                    proxyFactory.addAdvice((MethodInterceptor) invocation -> {
+                        if (invocation.getMethod().getName().equals("getTransaction")
+                                && Thread.currentThread().getName().equals("comment-writer")) {
+                            writerBlocked.countDown();
+                            gate.await();
+                        }
+                        return invocation.proceed();
+                    });
+                    return proxyFactory.getProxy();
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentWriteQueue commentWriteQueue;
+
+    @Test
+    void queuedCommentsAreAcceptedRejectedWhenFullAndWrittenOnShutdown() throws Exception {
+        PostDto post = new PostDto();
+        post.setTitle("Post " + UUID.randomUUID());
+        post.setDescription("Async comments");
+        post.setContent("Some content");
+        long postId = postService.createPost(post).getId();
+
+        // The first comment is taken off the queue by the writer, which then waits at the gate
+        List<String> trackingIds = new ArrayList<>();
+        trackingIds.add(submit(postId, 202));
+        assertThat(writerBlocked.await(10, TimeUnit.SECONDS)).isTrue();
+
+        // Two more fill the queue, the next one is turned away
+        trackingIds.add(submit(postId, 202));
+        trackingIds.add(submit(postId, 202));
+        submit(postId, 503);
+        for (String trackingId : trackingIds) {
+            mockMvc.perform(get("/api/comments/submissions/{id}", trackingId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("PENDING"));
+        }
+
+        // Shutdown: no new comments once stopping, but everything already queued is still written
+        Thread stopper = new Thread(commentWriteQueue::stop);
+        stopper.start();
+        while (commentWriteQueue.isRunning()) {
+            Thread.sleep(10);
+        }
+        submit(postId, 503);
+        gate.countDown();
+        stopper.join(10_000);
+        assertThat(stopper.isAlive()).isFalse();
+
+        for (String trackingId : trackingIds) {
+            mockMvc.perform(get("/api/comments/submissions/{id}", trackingId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.status").value("CREATED"))
+                    .andExpect(jsonPath("$.commentId").isNumber());
+        }
+        mockMvc.perform(get("/api/posts/{postId}/comments", postId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(3));
+    }
+
+    // Returns the tracking id of an accepted comment
+    private String submit(long postId, int expectedStatus) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(post("/api/posts/{postId}/comments", postId).param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"name": "Reader", "email": "reader@example.com", "body": "Nice post"}
+                                """))
+                .andExpect(status().is(expectedStatus))
+                .andReturn().getResponse();
+        if (expectedStatus != 202) {
+            return null;
+        }
+        String trackingId = JsonPath.read(response.getContentAsString(), "$.trackingId");
+        assertThat(response.getHeader(HttpHeaders.LOCATION)).isEqualTo("/api/comments/submissions/" + trackingId);
+        assertThat(JsonPath.<String>read(response.getContentAsString(), "$.status")).isEqualTo("PENDING");
+        return trackingId;
+    }
+}
@@ -0,0 +1,287 @@
+package com.springboot.blog.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.springboot.blog.cache.CommentCountBuffer;
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.service.CommentService;
+import com.springboot.blog.service.PostService;
+import com.springboot.blog.sql.SqlBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.json.JsonCompareMode;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Upper bound on the SQL statements of every endpoint. A change that adds a query to a path (an N+1,
+// a lazy association touched while mapping, an extra existence check, ...) fails here instead of in production.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EndpointSqlBudgetTests {
+
+    private static final String COMMENT_JSON = "{\"name\":\"Reader\",\"email\":\"reader@example.com\",\"body\":\"Nice post\"}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private CommentService commentService;
+
+    @Autowired
+    private CommentCountBuffer commentCountBuffer;
+
+    private long postId;
+    private long commentId;
+
+    @BeforeEach
+    void createPostWithComments() {
+        postId = postService.createPost(newPost()).getId();
+
+        CommentDto comment = new CommentDto();
+        comment.setName("Reader");
+        comment.setEmail("reader@example.com");
+        comment.setBody("Nice post");
+        commentId = commentService.createComments(postId, List.of(comment, comment, comment)).get(0);
+    }
+
+    private PostDto newPost() {
+        PostDto post = new PostDto();
+        post.setTitle("Budget " + UUID.randomUUID());
+        post.setDescription("Post used by the SQL budget tests");
+        post.setContent("Some content");
+        return post;
+    }
+
+    private String postJson() {
+        return "{\"title\":\"Budget " + UUID.randomUUID() + "\",\"description\":\"d\",\"content\":\"c\"}";
+    }
+
+    @Test
+    void createPost() throws Exception {
+        mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON).content(postJson()))
+                .andExpect(status().isCreated())
+                .andExpect(SqlBudget.atMost(1));
+    }
+
+    @Test
+    void getAllPosts() throws Exception {
+        // Page query plus the count query once there is more than one page
+        mockMvc.perform(get("/api/posts"))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(2));
+        mockMvc.perform(get("/api/posts").param("count", "none").param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+        mockMvc.perform(get("/api/posts").param("cursor", ""))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+    }
+
+    @Test
+    void getAllPostsFromPageCache() throws Exception {
+        // Otherwise the scheduled flush of the comments created above may drop the page between the two requests
+        commentCountBuffer.flush();
+        String firstPage = mockMvc.perform(get("/api/posts"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        // Served from the serialized page
+        mockMvc.perform(get("/api/posts").param("sortDir", "ASC"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(firstPage, JsonCompareMode.STRICT))
+                .andExpect(SqlBudget.atMost(0))
+                .andExpect(SqlBudget.noConnection());
+
+        // Any post write drops the cached pages
+        long totalElements = JsonPath.<Number>read(firstPage, "$.totalElements").longValue();
+        mockMvc.perform(post("/api/posts").contentType(MediaType.APPLICATION_JSON).content(postJson()))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/posts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(totalElements + 1));
+    }
+
+    @Test
+    void searchPosts() throws Exception {
+        mockMvc.perform(get("/api/posts/search").param("q", "budget"))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+        // Past the deepest page the index ranks, rejected before any query (pageNo * pageSize would overflow an int)
+        mockMvc.perform(get("/api/posts/search").param("q", "budget").param("pageNo", "50000000").param("pageSize", "100"))
+                .andExpect(status().isBadRequest())
+                .andExpect(SqlBudget.atMost(0));
+    }
+
+    @Test
+    void getPostById() throws Exception {
+        mockMvc.perform(get("/api/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+        // Second read is served from the cache
+        mockMvc.perform(get("/api/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(0))
+                .andExpect(SqlBudget.noConnection());
+    }
+
+    @Test
+    void getPostWithComments() throws Exception {
+        mockMvc.perform(get("/api/posts/{id}", postId).param("include", "comments").param("commentLimit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(postId))
+                .andExpect(jsonPath("$.title").exists())
+                .andExpect(jsonPath("$.comments.length()").value(2))
+                .andExpect(jsonPath("$.comments[0].id").value(commentId))
+                .andExpect(SqlBudget.atMost(1));
+        // A post without comments is still found by the same query
+        long withoutComments = postService.createPost(newPost()).getId();
+        mockMvc.perform(get("/api/posts/{id}", withoutComments).param("include", "comments"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments.length()").value(0))
+                .andExpect(SqlBudget.atMost(1));
+        mockMvc.perform(get("/api/posts/{id}", Integer.MAX_VALUE).param("include", "comments"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getPostsByIds() throws Exception {
+        long otherId = postService.createPost(newPost()).getId();
+        long missingId = Integer.MAX_VALUE;
+        // One IN query for every post, in the requested order, the unknown id is reported instead of failing
+        mockMvc.perform(get("/api/posts").param("ids", otherId + "," + missingId + "," + postId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(2))
+                .andExpect(jsonPath("$.content[0].id").value(otherId))
+                .andExpect(jsonPath("$.content[1].id").value(postId))
+                .andExpect(jsonPath("$.missingIds[0]").value(missingId))
+                .andExpect(SqlBudget.atMost(1));
+        // Cached posts don't need the database
+        mockMvc.perform(get("/api/posts/{id}", postId));
+        mockMvc.perform(get("/api/posts").param("ids", String.valueOf(postId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(postId))
+                .andExpect(SqlBudget.noConnection());
+    }
+
+    @Test
+    void updatePost() throws Exception {
+        mockMvc.perform(put("/api/posts/{id}", postId).contentType(MediaType.APPLICATION_JSON).content(postJson()))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(2));
+    }
+
+    @Test
+    void deletePost() throws Exception {
+        // The comments go with one set-based DELETE, however many there are
+        mockMvc.perform(delete("/api/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(2));
+        mockMvc.perform(get("/api/posts/{id}", postId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void deletePostInBackground() throws Exception {
+        // The request only checks that the post exists
+        mockMvc.perform(delete("/api/posts/{id}", postId).param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(SqlBudget.atMost(1));
+        for (int i = 0; i < 50 && mockMvc.perform(get("/api/posts/{id}", postId)).andReturn().getResponse().getStatus() != 404; i++) {
+            Thread.sleep(100);
+        }
+        mockMvc.perform(get("/api/posts/{id}", postId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void createComment() throws Exception {
+        mockMvc.perform(post("/api/posts/{postId}/comments", postId).contentType(MediaType.APPLICATION_JSON).content(COMMENT_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(SqlBudget.atMost(2));
+        // Async mode only queues the comment
+        mockMvc.perform(post("/api/posts/{postId}/comments", postId).param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON).content(COMMENT_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(SqlBudget.atMost(0))
+                .andExpect(SqlBudget.noConnection());
+    }
+
+    @Test
+    void createComments() throws Exception {
+        mockMvc.perform(post("/api/posts/{postId}/comments/batch", postId).contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + String.join(",", COMMENT_JSON, COMMENT_JSON, COMMENT_JSON) + "]"))
+                .andExpect(status().isCreated())
+                .andExpect(SqlBudget.atMost(2));
+    }
+
+    @Test
+    void getCommentsByPostId() throws Exception {
+        mockMvc.perform(get("/api/posts/{postId}/comments", postId))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+        mockMvc.perform(get("/api/posts/{postId}/comments", postId).param("cursor", "eyJpZCI6MH0"))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+        mockMvc.perform(get("/api/posts/{postId}/comments", postId).param("pageNo", "-1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(SqlBudget.atMost(0));
+    }
+
+    @Test
+    void getCommentsByPostIds() throws Exception {
+        long withoutComments = postService.createPost(newPost()).getId();
+        long missingId = Integer.MAX_VALUE;
+        mockMvc.perform(get("/api/comments").param("postIds", postId + "," + withoutComments + "," + missingId)
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments['" + postId + "'].length()").value(2))
+                .andExpect(jsonPath("$.comments['" + withoutComments + "'].length()").value(0))
+                .andExpect(jsonPath("$.missingPostIds[0]").value(missingId))
+                .andExpect(SqlBudget.atMost(2));
+        // Every post has comments, no need to check which ones exist
+        mockMvc.perform(get("/api/comments").param("postIds", String.valueOf(postId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments['" + postId + "'].length()").value(3))
+                .andExpect(SqlBudget.atMost(1));
+    }
+
+    @Test
+    void getCommentById() throws Exception {
+        mockMvc.perform(get("/api/posts/{postId}/comments/{id}", postId, commentId))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+    }
+
+    @Test
+    void updateCommentById() throws Exception {
+        mockMvc.perform(put("/api/posts/{postId}/comments/{id}", postId, commentId)
+                        .contentType(MediaType.APPLICATION_JSON).content(COMMENT_JSON))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+    }
+
+    @Test
+    void deleteCommentById() throws Exception {
+        mockMvc.perform(delete("/api/posts/{postId}/comments/{id}", postId, commentId))
+                .andExpect(status().isOk())
+                .andExpect(SqlBudget.atMost(1));
+    }
+}
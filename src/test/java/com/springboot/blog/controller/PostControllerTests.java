@@ -0,0 +1,293 @@
+package com.springboot.blog.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.springboot.blog.cache.PostCountCache;
+import com.springboot.blog.entity.Post;
+import com.springboot.blog.payload.PostDto;
+import com.springboot.blog.repository.PostRepository;
+import com.springboot.blog.service.PostService;
+import com.springboot.blog.utils.CursorUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// What GET/PUT /api/posts answer, EndpointSqlBudgetTests covers how many statements it takes
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PostControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private PostCountCache postCountCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private long createPost(String description) {
+        PostDto post = new PostDto();
+        post.setTitle("Post " + UUID.randomUUID());
+        post.setDescription(description);
+        post.setContent("Some content");
+        return postService.createPost(post).getId();
+    }
+
+    // pageSize 100 is above app.posts.page-cache.max-page-size, so count=exact really runs its COUNT(*) every time
+    private long totalElements(String countMode) throws Exception {
+        Number totalElements = JsonPath.read(mockMvc.perform(get("/api/posts")
+                        .param("count", countMode).param("pageSize", "100"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.totalElements");
+        return totalElements.longValue();
+    }
+
+    @Test
+    void cursorPagingVisitsEveryPostOnceAcrossEqualSortKeys() throws Exception {
+        // Five posts sorting equal on description, the pages of 2 have to split them on the id
+        String description = "Same description " + UUID.randomUUID();
+        List<Long> sameDescription = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            sameDescription.add(createPost(description));
+        }
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = "";
+        boolean last = false;
+        while (!last) {
+            String page = mockMvc.perform(get("/api/posts").param("cursor", cursor)
+                            .param("pageSize", "2").param("sortBy", "description"))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString();
+            List<Number> ids = JsonPath.read(page, "$.content[*].id");
+            ids.forEach(id -> seen.add(id.longValue()));
+            last = JsonPath.read(page, "$.last");
+            cursor = last ? null : JsonPath.read(page, "$.nextCursor");
+        }
+
+        assertThat(new HashSet<>(seen)).hasSameSizeAs(seen);
+        assertThat(seen.stream().filter(sameDescription::contains).toList()).isEqualTo(sameDescription);
+    }
+
+    @Test
+    void rejectsInvalidOrTamperedCursors() throws Exception {
+        createPost("Cursor test");
+        createPost("Cursor test");
+        String nextCursor = JsonPath.read(mockMvc.perform(get("/api/posts").param("cursor", "")
+                        .param("pageSize", "1").param("sortBy", "description"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.nextCursor");
+
+        // Not a cursor at all
+        mockMvc.perform(get("/api/posts").param("cursor", "not a cursor!"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+        // A cursor issued for another sort order
+        mockMvc.perform(get("/api/posts").param("cursor", nextCursor).param("sortBy", "title"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Cursor does not match the requested sort order"));
+        // Edited keys: the id is no longer a number, or an extra key was slipped in
+        Map<String, Object> keys = CursorUtils.decode(nextCursor);
+        keys.put("id", "1 or 1=1");
+        mockMvc.perform(get("/api/posts").param("cursor", CursorUtils.encode(keys)).param("sortBy", "description"))
+                .andExpect(status().isBadRequest());
+        keys = CursorUtils.decode(nextCursor);
+        keys.put("title", "x");
+        mockMvc.perform(get("/api/posts").param("cursor", CursorUtils.encode(keys)).param("sortBy", "description"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void cursorPagesAreBounded() throws Exception {
+        createPost("Cursor test");
+        mockMvc.perform(get("/api/posts").param("cursor", "").param("pageSize", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pageSize").value(1))
+                .andExpect(jsonPath("$.content.length()").value(1));
+        mockMvc.perform(get("/api/posts").param("cursor", "").param("pageSize", "1000000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.pageSize").value(100));
+        // No (content, id) index to seek on
+        mockMvc.perform(get("/api/posts").param("cursor", "").param("sortBy", "content"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void onlyPartialListingsLeaveFieldsOut() throws Exception {
+        long postId = createPost("Fields test");
+        mockMvc.perform(get("/api/posts").param("cursor", "").param("view", "summary").param("pageSize", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].title").exists())
+                .andExpect(jsonPath("$.content[0].content").doesNotExist())
+                .andExpect(jsonPath("$.content[0].version").doesNotExist());
+        mockMvc.perform(get("/api/posts").param("cursor", "").param("fields", "id").param("pageSize", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").exists())
+                .andExpect(jsonPath("$.content[0].title").doesNotExist());
+
+        // Everywhere else a post is written with all of its keys
+        mockMvc.perform(get("/api/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").value("Some content"))
+                .andExpect(jsonPath("$.commentCount").exists())
+                .andExpect(jsonPath("$.version").exists());
+    }
+
+    @Test
+    void cachedCountFollowsTheServiceAndCatchesUpOnReconcile() throws Exception {
+        postCountCache.reconcile();
+        createPost("Count test");
+        assertThat(totalElements("exact")).isEqualTo(postRepository.count());
+        assertThat(totalElements("cached")).isEqualTo(postRepository.count());
+
+        // A row written behind the service's back (another instance, a script) is only seen by the exact count...
+        Post post = new Post();
+        post.setTitle("Post " + UUID.randomUUID());
+        post.setDescription("Count test");
+        post.setContent("Some content");
+        postRepository.save(post);
+        long total = postRepository.count();
+        assertThat(totalElements("exact")).isEqualTo(total);
+        assertThat(totalElements("cached")).isEqualTo(total - 1);
+
+        // ...until the next reconciliation
+        postCountCache.reconcile();
+        assertThat(totalElements("cached")).isEqualTo(total);
+    }
+
+    @Test
+    void rolledBackPostIsNotCounted() throws Exception {
+        postCountCache.reconcile();
+        long before = totalElements("cached");
+        transactionTemplate.executeWithoutResult(status -> {
+            createPost("Rolled back");
+            status.setRollbackOnly();
+        });
+        assertThat(totalElements("cached")).isEqualTo(before);
+    }
+
+    @Test
+    void rejectsUnknownCountMode() throws Exception {
+        mockMvc.perform(get("/api/posts").param("count", "estimated"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("count must be one of exact, cached or none"));
+        mockMvc.perform(get("/api/posts").param("count", "none"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    void conditionalRequestsFollowThePostVersion() throws Exception {
+        long postId = createPost("ETag test");
+        String etag = mockMvc.perform(get("/api/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(etag).isNotNull();
+
+        mockMvc.perform(get("/api/posts/{id}", postId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+        // An update made against the current version goes through and moves the ETag on
+        String updatedEtag = mockMvc.perform(put("/api/posts/{id}", postId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(postJson()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(updatedEtag).isNotNull().isNotEqualTo(etag);
+
+        mockMvc.perform(get("/api/posts/{id}", postId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, updatedEtag));
+
+        // The second update was made against the old version: it must not overwrite the first one
+        mockMvc.perform(put("/api/posts/{id}", postId).header(HttpHeaders.IF_MATCH, etag)
+                        .contentType(MediaType.APPLICATION_JSON).content(postJson()))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/posts/{id}", postId).header(HttpHeaders.IF_NONE_MATCH, updatedEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void conditionalGetSeesAWriteThisInstanceDidNotCache() throws Exception {
+        long postId = createPost("ETag test");
+        String etag = mockMvc.perform(get("/api/posts/{id}", postId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Updated the way another instance would: the row changes, the "posts" cache of this one is not evicted
+        Post post = postRepository.findById(postId).orElseThrow();
+        post.setContent("Changed elsewhere");
+        postRepository.save(post);
+
+        mockMvc.perform(get("/api/posts/{id}", postId).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    private static String postJson() {
+        return """
+                {"title": "Post %s", "description": "ETag test", "content": "Updated content"}
+                """.formatted(UUID.randomUUID());
+    }
+
+    @Test
+    void deletedPostsLeaveTheSearchIndex() throws Exception {
+        String word = "gone" + UUID.randomUUID().toString().replace("-", "");
+        long deleted = createPost(word);
+        long deletedInBackground = createPost(word);
+        mockMvc.perform(get("/api/posts/search").param("q", word))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(2));
+
+        mockMvc.perform(delete("/api/posts/{id}", deleted))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/posts/search").param("q", word))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(deletedInBackground));
+
+        mockMvc.perform(delete("/api/posts/{id}", deletedInBackground).param("async", "true"))
+                .andExpect(status().isAccepted());
+        // The index is updated right after the background delete commits, give it a few seconds
+        long total = searchTotal(word);
+        for (int i = 0; i < 500 && total != 0; i++) {
+            Thread.sleep(10);
+            total = searchTotal(word);
+        }
+        assertThat(total).isZero();
+        assertThat(postRepository.existsById(deletedInBackground)).isFalse();
+    }
+
+    private long searchTotal(String query) throws Exception {
+        Number totalElements = JsonPath.read(mockMvc.perform(get("/api/posts/search").param("q", query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$.totalElements");
+        return totalElements.longValue();
+    }
+}
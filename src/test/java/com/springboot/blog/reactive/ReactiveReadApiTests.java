@@ -0,0 +1,143 @@
+package com.springboot.blog.reactive;
+
+import com.springboot.blog.payload.CommentDto;
+import com.springboot.blog.payload.PostDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs the reactive application on a real Netty server against an in-memory H2 database (r2dbc-h2).
+// The test context picks the web application type before reactive.properties is read, so it is repeated here
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.config.name=" + ReactiveBlogApplication.CONFIG_NAME,
+        "spring.main.web-application-type=reactive"
+})
+@ActiveProfiles("test")
+class ReactiveReadApiTests {
+
+    private static final int POSTS = 30;
+    private static final int COMMENTS = 5;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    private long firstPostId;
+
+    @BeforeEach
+    void createPosts() {
+        databaseClient.sql("delete from comments").then()
+                .then(databaseClient.sql("delete from posts").then())
+                .block();
+        for (int i = 0; i < POSTS; i++) {
+            databaseClient.sql("insert into posts (title, description, content) values (:title, 'd', 'c')")
+                    .bind("title", String.format("Post %02d", i))
+                    .then().block();
+        }
+        firstPostId = databaseClient.sql("select min(id) from posts").map(row -> row.get(0, Long.class)).one().block();
+        for (int i = 1; i <= COMMENTS; i++) {
+            databaseClient.sql("insert into comments (id, name, email, body, post_id) values (:id, 'Reader', 'r@example.com', 'Nice', :postId)")
+                    .bind("id", (long) i)
+                    .bind("postId", firstPostId)
+                    .then().block();
+        }
+    }
+
+    @Test
+    void listsOnePageWithTheSamePayloadAsTheServletApi() {
+        webTestClient.get().uri("/api/posts?pageNo=1&pageSize=10&sortBy=title&sortDir=desc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.length()").isEqualTo(10)
+                .jsonPath("$.content[0].title").isEqualTo("Post 19")
+                .jsonPath("$.totalElements").isEqualTo(POSTS)
+                .jsonPath("$.totalPages").isEqualTo(3)
+                .jsonPath("$.first").isEqualTo(false)
+                .jsonPath("$.last").isEqualTo(false);
+    }
+
+    @Test
+    void rejectsUnknownSortColumns() {
+        webTestClient.get().uri("/api/posts?sortBy=id;drop table posts")
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("$.message").isEqualTo("Cannot sort by id;drop table posts");
+    }
+
+    @Test
+    void getsOnePost() {
+        webTestClient.get().uri("/api/posts/{id}", firstPostId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PostDto.class)
+                .value(post -> assertThat(post.getTitle()).isEqualTo("Post 00"));
+
+        webTestClient.get().uri("/api/posts/{id}", Integer.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void listsCommentsAfterAnId() {
+        webTestClient.get().uri("/api/posts/{postId}/comments?afterId=2&pageSize=2", firstPostId)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CommentDto.class)
+                .value(comments -> assertThat(comments).extracting(CommentDto::getId).containsExactly(3L, 4L));
+    }
+
+    @Test
+    void streamsEveryPostToASlowClient() {
+        Flux<PostDto> posts = webTestClient.get().uri("/api/posts")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(PostDto.class)
+                .getResponseBody();
+
+        // Reads one post at a time and takes its time with each of them
+        StepVerifier.create(posts.limitRate(1).delayElements(Duration.ofMillis(5)))
+                .expectNextCount(POSTS)
+                .verifyComplete();
+    }
+
+    @Test
+    void servesManyConcurrentRequestsOnTheEventLoop() {
+        int requests = 500;
+        List<Long> ids = Flux.range(0, requests)
+                .flatMap(i -> webTestClient.get().uri("/api/posts/{id}", firstPostId + i % POSTS)
+                        .exchange()
+                        .returnResult(PostDto.class)
+                        .getResponseBody()
+                        .map(PostDto::getId), requests)
+                .collectList()
+                .block(Duration.ofSeconds(60));
+        assertThat(ids).hasSize(requests);
+
+        // Netty's default: one event loop thread per core (at least 4), whatever the number of requests.
+        // The test client shares them with the server
+        Set<String> eventLoops = Thread.getAllStackTraces().keySet().stream()
+                .map(Thread::getName)
+                .filter(name -> name.startsWith("reactor-http-"))
+                .collect(Collectors.toSet());
+        assertThat(eventLoops).isNotEmpty().hasSizeLessThanOrEqualTo(Math.max(Runtime.getRuntime().availableProcessors(), 4));
+    }
+}
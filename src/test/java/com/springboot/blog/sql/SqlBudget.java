@@ -0,0 +1,41 @@
+package com.springboot.blog.sql;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+// MockMvc matchers on the SQL a request sent to the database (collected by SqlStatsFilter), e.g.
+//   mockMvc.perform(get("/api/posts/{id}", id)).andExpect(SqlBudget.atMost(1));
+public final class SqlBudget {
+
+    private SqlBudget() {
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> {
+            SqlStats stats = stats(result);
+            if (stats.getStatements() > statements) {
+                throw new AssertionError("Expected at most " + statements + " SQL statements for "
+                        + result.getRequest().getMethod() + " " + result.getRequest().getRequestURI() + " but got " + stats);
+            }
+        };
+    }
+
+    // The request never took a connection out of the pool (cache hits, queued writes, ...)
+    public static ResultMatcher noConnection() {
+        return result -> {
+            SqlStats stats = stats(result);
+            if (stats.getConnectionNanos() > 0) {
+                throw new AssertionError("Expected no pooled connection for " + result.getRequest().getMethod() + " "
+                        + result.getRequest().getRequestURI() + " but got " + stats);
+            }
+        };
+    }
+
+    private static SqlStats stats(MvcResult result) {
+        SqlStats stats = (SqlStats) result.getRequest().getAttribute(SqlStatsFilter.ATTRIBUTE);
+        if (stats == null) {
+            throw new AssertionError("No SQL stats on the request, is SqlStatsFilter registered?");
+        }
+        return stats;
+    }
+}